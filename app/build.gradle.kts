@@ -50,6 +50,7 @@ dependencies {
     implementation ("com.google.android.exoplayer:exoplayer-ui:2.19.1")
     implementation ("com.google.android.exoplayer:exoplayer-hls:2.19.1")
     implementation ("com.google.android.exoplayer:exoplayer-dash:2.19.1")
+    implementation ("com.google.android.exoplayer:extension-okhttp:2.19.1")
     implementation ("com.google.android.material:material:1.6.0")
     implementation ("androidx.media:media:1.6.0")
     implementation ("androidx.media2:media2-session:1.2.1")
@@ -64,6 +65,7 @@ dependencies {
     annotationProcessor ("com.github.bumptech.glide:compiler:4.14.2")
     implementation ("com.github.bumptech.glide:glide:4.15.1")
     annotationProcessor ("com.github.bumptech.glide:compiler:4.15.1")
+    implementation ("com.github.bumptech.glide:okhttp3-integration:4.15.1")
 
     val room_version = "2.6.0"
     implementation("androidx.room:room-runtime:$room_version")
@@ -71,7 +73,13 @@ dependencies {
 
     // Optional - Kotlin Extensions and Coroutines support for Room
     implementation("androidx.room:room-ktx:$room_version")
+    implementation("androidx.room:room-paging:$room_version")
+
+    // Paging 3 cho danh sách bài hát trong playlist
+    implementation("androidx.paging:paging-runtime:3.2.1")
 
     // Gson for JSON serialization
     implementation("com.google.code.gson:gson:2.10.1")
+
+    testImplementation(libs.junit)
 }
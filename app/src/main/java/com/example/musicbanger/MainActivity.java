@@ -22,9 +22,10 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.musicbanger.adapters.SongAdapter;
-import com.example.musicbanger.api.JamendoApi;
+import com.example.musicbanger.api.HomeFeedAggregator;
+import com.example.musicbanger.manager.FeedCacheManager;
 import com.example.musicbanger.manager.UserPlaylistManager;
-import com.example.musicbanger.model.Playlist;
+import com.example.musicbanger.model.PlaylistSummary;
 import com.example.musicbanger.model.Track;
 import com.example.musicbanger.service.MusicService;
 
@@ -32,9 +33,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class MainActivity extends AppCompatActivity implements
         SongAdapter.OnSongClickListener,
@@ -53,6 +51,9 @@ public class MainActivity extends AppCompatActivity implements
     private List<Track> recentTracks = new ArrayList<>();
     private List<Track> suggestedTracks = new ArrayList<>();
     private List<Track> allTracks = new ArrayList<>();
+    // Đã có feed trên màn hình (từ cache hoặc mạng): làm mới chạy ngầm, lỗi mạng không báo
+    private boolean feedDisplayed = false;
+    private HomeFeedAggregator homeFeedAggregator;
 
     // Service
     private MusicService musicService;
@@ -172,7 +173,7 @@ public class MainActivity extends AppCompatActivity implements
         View btnRefresh = findViewById(R.id.btnRefresh);
         if (btnRefresh != null) {
             btnRefresh.setOnClickListener(v -> {
-                loadMusicData();
+                refreshMusicData();
                 Toast.makeText(MainActivity.this,
                         "Đang tải lại danh sách nhạc...", Toast.LENGTH_SHORT).show();
             });
@@ -206,16 +207,17 @@ public class MainActivity extends AppCompatActivity implements
 
     // Mở playlist yêu thích
     private void openFavoritesPlaylist() {
-        Playlist favorites = UserPlaylistManager.getInstance().getFavoritesPlaylist();
-        if (favorites != null && !favorites.getTracks().isEmpty()) {
-            // Mở activity playlist chi tiết
-            Intent intent = new Intent(this, PlaylistDetailActivity.class);
-            intent.putExtra("playlist_id", favorites.getId());
-            intent.putExtra("playlist_name", favorites.getName());
-            startActivity(intent);
-        } else {
-            Toast.makeText(this, "Chưa có bài hát yêu thích", Toast.LENGTH_SHORT).show();
-        }
+        UserPlaylistManager.getInstance().getPlaylistSummary(UserPlaylistManager.FAVORITES_PLAYLIST_ID, favorites -> {
+            if (favorites != null && favorites.getTrackCount() > 0) {
+                // Mở activity playlist chi tiết
+                Intent intent = new Intent(this, PlaylistDetailActivity.class);
+                intent.putExtra("playlist_id", favorites.getId());
+                intent.putExtra("playlist_name", favorites.getName());
+                startActivity(intent);
+            } else {
+                Toast.makeText(this, "Chưa có bài hát yêu thích", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     // Mở quản lý playlist
@@ -226,15 +228,16 @@ public class MainActivity extends AppCompatActivity implements
 
     // Mở lịch sử nghe
     private void openRecentlyPlayed() {
-        Playlist recentlyPlayed = UserPlaylistManager.getInstance().getRecentlyPlayedPlaylist();
-        if (recentlyPlayed != null && !recentlyPlayed.getTracks().isEmpty()) {
-            Intent intent = new Intent(this, PlaylistDetailActivity.class);
-            intent.putExtra("playlist_id", recentlyPlayed.getId());
-            intent.putExtra("playlist_name", recentlyPlayed.getName());
-            startActivity(intent);
-        } else {
-            Toast.makeText(this, "Chưa có bài hát nào được nghe", Toast.LENGTH_SHORT).show();
-        }
+        UserPlaylistManager.getInstance().getPlaylistSummary(UserPlaylistManager.RECENTLY_PLAYED_PLAYLIST_ID, recentlyPlayed -> {
+            if (recentlyPlayed != null && recentlyPlayed.getTrackCount() > 0) {
+                Intent intent = new Intent(this, PlaylistDetailActivity.class);
+                intent.putExtra("playlist_id", recentlyPlayed.getId());
+                intent.putExtra("playlist_name", recentlyPlayed.getName());
+                startActivity(intent);
+            } else {
+                Toast.makeText(this, "Chưa có bài hát nào được nghe", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     // Thiết lập menu context cho adapter
@@ -251,10 +254,8 @@ public class MainActivity extends AppCompatActivity implements
             @Override
             public void onToggleFavorite(Track track) {
                 android.util.Log.d("MainActivity", "onToggleFavorite called for: " + track.getTitle());
-                UserPlaylistManager.getInstance().toggleFavorite(track);
-
-                // Kiểm tra trạng thái ngay lập tức
-                UserPlaylistManager.getInstance().isFavorite(track, new UserPlaylistManager.FavoriteCallback() {
+                // Trạng thái mới được trả về sau khi ghi xong
+                UserPlaylistManager.getInstance().toggleFavorite(track, new UserPlaylistManager.FavoriteCallback() {
                     @Override
                     public void onFavoriteChecked(boolean isFavorite) {
                         android.util.Log.d("MainActivity", "Favorite status after toggle: " + isFavorite);
@@ -288,9 +289,7 @@ public class MainActivity extends AppCompatActivity implements
             @Override
             public void onToggleFavorite(Track track) {
                 android.util.Log.d("MainActivity", "onToggleFavorite called for: " + track.getTitle());
-                UserPlaylistManager.getInstance().toggleFavorite(track);
-
-                UserPlaylistManager.getInstance().isFavorite(track, new UserPlaylistManager.FavoriteCallback() {
+                UserPlaylistManager.getInstance().toggleFavorite(track, new UserPlaylistManager.FavoriteCallback() {
                     @Override
                     public void onFavoriteChecked(boolean isFavorite) {
                         android.util.Log.d("MainActivity", "Favorite status after toggle: " + isFavorite);
@@ -320,59 +319,61 @@ public class MainActivity extends AppCompatActivity implements
 
     // Hiển thị dialog thêm vào playlist
     private void showAddToPlaylistDialog(Track track) {
-        List<Playlist> allPlaylists = UserPlaylistManager.getInstance().getAllPlaylists();
-
-        // Lọc bỏ playlist mặc định nếu muốn (tùy chọn)
-        List<Playlist> userCreatedPlaylists = new ArrayList<>();
-        for (Playlist playlist : allPlaylists) {
-            if (!playlist.getName().equals("Bài hát yêu thích") &&
-                    !playlist.getName().equals("Nghe gần đây")) {
-                userCreatedPlaylists.add(playlist);
+        UserPlaylistManager.getInstance().getPlaylistSummaries(allPlaylists -> {
+            if (isFinishing()) return;
+
+            // Lọc bỏ playlist mặc định nếu muốn (tùy chọn)
+            List<PlaylistSummary> userCreatedPlaylists = new ArrayList<>();
+            for (PlaylistSummary playlist : allPlaylists) {
+                if (!playlist.getName().equals("Bài hát yêu thích") &&
+                        !playlist.getName().equals("Nghe gần đây")) {
+                    userCreatedPlaylists.add(playlist);
+                }
             }
-        }
 
-        if (userCreatedPlaylists.isEmpty()) {
-            Toast.makeText(this, "Chưa có playlist nào. Hãy tạo playlist trước!", Toast.LENGTH_SHORT).show();
-            return;
-        }
+            if (userCreatedPlaylists.isEmpty()) {
+                Toast.makeText(this, "Chưa có playlist nào. Hãy tạo playlist trước!", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-        String[] playlistNames = new String[userCreatedPlaylists.size()];
-        for (int i = 0; i < userCreatedPlaylists.size(); i++) {
-            playlistNames[i] = userCreatedPlaylists.get(i).getName();
-        }
+            String[] playlistNames = new String[userCreatedPlaylists.size()];
+            for (int i = 0; i < userCreatedPlaylists.size(); i++) {
+                playlistNames[i] = userCreatedPlaylists.get(i).getName();
+            }
 
-        AlertDialog.Builder builder = new AlertDialog.Builder(this);
-        builder.setTitle("Thêm vào playlist")
-                .setItems(playlistNames, (dialog, which) -> {
-                    Playlist selectedPlaylist = userCreatedPlaylists.get(which);
-                    UserPlaylistManager.getInstance().addTrackToPlaylist(selectedPlaylist.getId(), track);
-                    Toast.makeText(this, "Đã thêm vào " + selectedPlaylist.getName(), Toast.LENGTH_SHORT).show();
-                })
-                .setNegativeButton("Hủy", null)
-                .show();
+            AlertDialog.Builder builder = new AlertDialog.Builder(this);
+            builder.setTitle("Thêm vào playlist")
+                    .setItems(playlistNames, (dialog, which) -> {
+                        PlaylistSummary selectedPlaylist = userCreatedPlaylists.get(which);
+                        UserPlaylistManager.getInstance().addTrackToPlaylist(selectedPlaylist.getId(), track);
+                        Toast.makeText(this, "Đã thêm vào " + selectedPlaylist.getName(), Toast.LENGTH_SHORT).show();
+                    })
+                    .setNegativeButton("Hủy", null)
+                    .show();
+        });
     }
 
     // Bật/tắt yêu thích
     private void toggleFavoriteTrack(Track track) {
-        UserPlaylistManager.getInstance().toggleFavorite(track);
-        boolean isFavorite = UserPlaylistManager.getInstance().isFavorite(track);
+        UserPlaylistManager.getInstance().toggleFavorite(track, isFavorite -> {
+            Toast.makeText(this,
+                    isFavorite ? "Đã thêm vào yêu thích" : "Đã bỏ khỏi yêu thích",
+                    Toast.LENGTH_SHORT).show();
 
-        Toast.makeText(this,
-                isFavorite ? "Đã thêm vào yêu thích" : "Đã bỏ khỏi yêu thích",
-                Toast.LENGTH_SHORT).show();
-
-        // Cập nhật UI nếu cần
-        updateFavoriteIcon();
+            // Cập nhật UI nếu cần
+            updateFavoriteIcon();
+        });
     }
 
     // Thêm vào hàng đợi
     private void addToQueue(Track track) {
         if (serviceBound && musicService != null) {
             // Thêm bài hát vào sau bài hiện tại
-            musicService.getPlaylistManager().getPlaylist().add(
-                    musicService.getPlaylistManager().getCurrentIndex() + 1, track
-            );
-            Toast.makeText(this, "Đã thêm vào hàng đợi", Toast.LENGTH_SHORT).show();
+            if (musicService.addToQueue(track)) {
+                Toast.makeText(this, "Đã thêm vào hàng đợi", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Không thể phát bài hát này", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 
@@ -499,171 +500,85 @@ public class MainActivity extends AppCompatActivity implements
 
     // ==================== MUSIC DATA LOADING ====================
 
+    // Hiển thị ngay feed đã lưu (nếu có), chỉ gọi mạng khi chưa có hoặc đã cũ
     private void loadMusicData() {
-        showLoading(true);
         Log.d("MainActivity", "Loading music data...");
+        FeedCacheManager feedCache = FeedCacheManager.getInstance();
+        feedCache.getFeed(FeedCacheManager.KEY_HOME, (tracks, fetchedAt) -> {
+            if (isFinishing() || isDestroyed()) return;
+
+            if (tracks != null && !tracks.isEmpty()) {
+                updateTrackLists(tracks);
+                showLoading(false);
+                feedDisplayed = true;
+                if (feedCache.isFresh(fetchedAt)) {
+                    Log.d("MainActivity", "Cached home feed is fresh, skip refresh");
+                    return;
+                }
+            }
+            refreshMusicData();
+        });
+    }
+
+    private void refreshMusicData() {
+        if (!feedDisplayed) {
+            showLoading(true);
+        }
         loadQuickMetadata();
     }
 
+    // Gửi đồng thời các truy vấn feed, lấy kết quả tốt theo thứ tự ưu tiên
     private void loadQuickMetadata() {
-        try {
-            JamendoApi api = com.example.musicbanger.api.MusicApiService.getJamendoApi();
-            String clientId = "06ac505c";
-
-            api.getPopularTracks(
-                    clientId,
-                    "json",
-                    15,
-                    "popularity_total"
-            ).enqueue(new Callback<JamendoApi.JamendoResponse>() {
-                @Override
-                public void onResponse(Call<JamendoApi.JamendoResponse> call,
-                                       Response<JamendoApi.JamendoResponse> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        List<JamendoApi.JamendoTrack> jamendoTracks = response.body().results;
-                        if (jamendoTracks != null && !jamendoTracks.isEmpty()) {
-                            processQuickMetadata(jamendoTracks);
-                        } else {
-                            loadTracksByGenre();
-                        }
-                    } else {
-                        loadTracksByGenre();
-                    }
-                }
-
-                @Override
-                public void onFailure(Call<JamendoApi.JamendoResponse> call, Throwable t) {
-                    Log.e("MainActivity", "API failure: " + t.getMessage());
-                    loadTracksByGenre();
-                }
-            });
-
-        } catch (Exception e) {
-            Log.e("MainActivity", "Error loading metadata: " + e.getMessage(), e);
-            loadTracksByGenre();
+        if (homeFeedAggregator != null) {
+            homeFeedAggregator.cancel();
         }
-    }
 
-    private void loadTracksByGenre() {
+        String[] popularGenres = {"rock", "pop", "electronic", "jazz", "instrumental"};
+        String randomGenre = popularGenres[new Random().nextInt(popularGenres.length)];
+
         try {
-            JamendoApi api = com.example.musicbanger.api.MusicApiService.getJamendoApi();
-            String clientId = "06ac505c";
-
-            String[] popularGenres = {"rock", "pop", "electronic", "jazz", "instrumental"};
-            String randomGenre = popularGenres[new Random().nextInt(popularGenres.length)];
-
-            api.getTracksByGenre(
-                    clientId,
-                    "json",
-                    12,
-                    randomGenre
-            ).enqueue(new Callback<JamendoApi.JamendoResponse>() {
+            homeFeedAggregator = new HomeFeedAggregator(
+                    com.example.musicbanger.api.MusicApiService.getJamendoApi());
+            homeFeedAggregator.load(randomGenre, new HomeFeedAggregator.FeedCallback() {
                 @Override
-                public void onResponse(Call<JamendoApi.JamendoResponse> call,
-                                       Response<JamendoApi.JamendoResponse> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        List<JamendoApi.JamendoTrack> jamendoTracks = response.body().results;
-                        if (jamendoTracks != null && !jamendoTracks.isEmpty()) {
-                            processQuickMetadata(jamendoTracks);
-                        } else {
-                            loadLatestTracks();
-                        }
-                    } else {
-                        loadLatestTracks();
-                    }
+                public void onFeedLoaded(List<Track> tracks) {
+                    processQuickMetadata(tracks);
                 }
 
                 @Override
-                public void onFailure(Call<JamendoApi.JamendoResponse> call, Throwable t) {
-                    loadLatestTracks();
+                public void onFeedFailed(String error) {
+                    handleAllApiFailures(error);
                 }
-            });
 
-        } catch (Exception e) {
-            loadLatestTracks();
-        }
-    }
-
-    private void loadLatestTracks() {
-        try {
-            JamendoApi api = com.example.musicbanger.api.MusicApiService.getJamendoApi();
-            String clientId = "06ac505c";
-
-            api.getPopularTracks(
-                    clientId,
-                    "json",
-                    12,
-                    "releasedate_desc"
-            ).enqueue(new Callback<JamendoApi.JamendoResponse>() {
                 @Override
-                public void onResponse(Call<JamendoApi.JamendoResponse> call,
-                                       Response<JamendoApi.JamendoResponse> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        List<JamendoApi.JamendoTrack> jamendoTracks = response.body().results;
-                        if (jamendoTracks != null && !jamendoTracks.isEmpty()) {
-                            processQuickMetadata(jamendoTracks);
-                        } else {
-                            handleAllApiFailures("No tracks found");
-                        }
-                    } else {
-                        handleAllApiFailures("API error: " + response.code());
+                public void onSourceLoaded(HomeFeedAggregator.Source source, List<Track> tracks) {
+                    if (source == HomeFeedAggregator.Source.GENRE) {
+                        FeedCacheManager.getInstance().saveFeed(FeedCacheManager.genreKey(randomGenre), tracks);
                     }
                 }
-
-                @Override
-                public void onFailure(Call<JamendoApi.JamendoResponse> call, Throwable t) {
-                    handleAllApiFailures("API failure: " + t.getMessage());
-                }
             });
-
         } catch (Exception e) {
+            Log.e("MainActivity", "Error loading metadata: " + e.getMessage(), e);
             handleAllApiFailures("Error: " + e.getMessage());
         }
     }
 
-    private void processQuickMetadata(List<JamendoApi.JamendoTrack> jamendoTracks) {
-        List<Track> tracks = new ArrayList<>();
-
-        for (JamendoApi.JamendoTrack jamendoTrack : jamendoTracks) {
-            if (jamendoTrack.audio != null && !jamendoTrack.audio.isEmpty()) {
-                Track track = new Track(
-                        jamendoTrack.id,
-                        jamendoTrack.name,
-                        jamendoTrack.artist_name != null ? jamendoTrack.artist_name : "Unknown Artist",
-                        jamendoTrack.album_name != null ? jamendoTrack.album_name : "Unknown Album",
-                        jamendoTrack.audio,
-                        jamendoTrack.image,
-                        jamendoTrack.duration
-                );
-                tracks.add(track);
-            }
-        }
-
+    private void processQuickMetadata(List<Track> tracks) {
         if (!tracks.isEmpty()) {
+            FeedCacheManager.getInstance().saveFeed(FeedCacheManager.KEY_HOME, tracks);
+
+            boolean silentRefresh = feedDisplayed;
             updateTrackLists(tracks);
             showLoading(false);
-            Toast.makeText(this, "Đã tải " + tracks.size() + " bài hát", Toast.LENGTH_SHORT).show();
-
-            // Preload audio URLs in background
-            preloadAudioUrlsInBackground(tracks);
+            feedDisplayed = true;
+            if (!silentRefresh) {
+                Toast.makeText(this, "Đã tải " + tracks.size() + " bài hát", Toast.LENGTH_SHORT).show();
+            }
         } else {
             handleAllApiFailures("No valid tracks found");
         }
     }
 
-    private void preloadAudioUrlsInBackground(List<Track> tracks) {
-        new Thread(() -> {
-            try {
-                Log.d("MainActivity", "Preloading audio URLs...");
-                // Just sleep to simulate background work
-                Thread.sleep(1000);
-                Log.d("MainActivity", "Audio preload completed");
-            } catch (Exception e) {
-                Log.e("MainActivity", "Error in audio preload", e);
-            }
-        }).start();
-    }
-
     private void updateTrackLists(List<Track> tracks) {
         recentTracks.clear();
         suggestedTracks.clear();
@@ -715,6 +630,8 @@ public class MainActivity extends AppCompatActivity implements
     private void handleAllApiFailures(String errorMessage) {
         Log.e("MainActivity", "All APIs failed: " + errorMessage);
         showLoading(false);
+        // Đang hiển thị feed đã lưu: giữ nguyên, không báo lỗi
+        if (feedDisplayed) return;
         Toast.makeText(this, "Không thể tải nhạc. Vui lòng thử lại.", Toast.LENGTH_LONG).show();
     }
 
@@ -850,6 +767,9 @@ public class MainActivity extends AppCompatActivity implements
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (homeFeedAggregator != null) {
+            homeFeedAggregator.cancel();
+        }
         if (serviceBound && musicService != null) {
             musicService.removeObserver(this);
             unbindService(serviceConnection);
@@ -858,19 +778,26 @@ public class MainActivity extends AppCompatActivity implements
     }
 
     private void updateRecentTracksFromPlaylist() {
-        Playlist recentlyPlayed = UserPlaylistManager.getInstance().getRecentlyPlayedPlaylist();
-        if (recentlyPlayed != null && !recentlyPlayed.getTracks().isEmpty()) {
-            // Lấy tối đa 3 bài gần đây nhất
-            List<Track> recentTracksFromPlaylist = new ArrayList<>();
-            int count = Math.min(3, recentlyPlayed.getTracks().size());
-            for (int i = 0; i < count; i++) {
-                recentTracksFromPlaylist.add(recentlyPlayed.getTracks().get(i));
+        // 3 bài khác nhau nghe gần nhất theo play_history; chưa có lịch sử thì dùng playlist "Nghe gần đây"
+        UserPlaylistManager manager = UserPlaylistManager.getInstance();
+        manager.getRecentDistinctTracks(3, historyTracks -> {
+            if (!historyTracks.isEmpty()) {
+                showRecentTracks(historyTracks);
+                return;
             }
+            manager.getFirstTracks(UserPlaylistManager.RECENTLY_PLAYED_PLAYLIST_ID, 3,
+                    recentTracksFromPlaylist -> {
+                        if (!recentTracksFromPlaylist.isEmpty()) {
+                            showRecentTracks(recentTracksFromPlaylist);
+                        }
+                    });
+        });
+    }
 
-            recentTracks.clear();
-            recentTracks.addAll(recentTracksFromPlaylist);
-            recentAdapter.updateTracks(recentTracks);
-        }
+    private void showRecentTracks(List<Track> tracks) {
+        recentTracks.clear();
+        recentTracks.addAll(tracks);
+        recentAdapter.updateTracks(recentTracks);
     }
 
     // THÊM PHƯƠNG THỨC PHÁT NGẪU NHIÊN TRONG DANH SÁCH HIỆN TẠI
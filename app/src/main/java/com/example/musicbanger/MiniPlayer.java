@@ -4,28 +4,20 @@ import android.animation.ArgbEvaluator;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.drawable.Drawable;
-import android.net.Uri;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.constraintlayout.widget.ConstraintLayout;
-import androidx.palette.graphics.Palette;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.CustomTarget;
-import com.bumptech.glide.request.transition.Transition;
 import com.example.musicbanger.MainActivity;
 import com.example.musicbanger.NowPlayingActivity;
 import com.example.musicbanger.R;
+import com.example.musicbanger.manager.ArtworkManager;
 import com.example.musicbanger.model.Track;
 import com.example.musicbanger.service.MusicService;
 
@@ -48,6 +40,9 @@ public class MiniPlayer extends ConstraintLayout {
     private MiniPlayerListener listener;
     private boolean isPlaying = false;
 
+    // Bài đang hiển thị ảnh bìa
+    private String artworkTrackId;
+
     public MiniPlayer(Context context) {
         super(context);
         init(context);
@@ -128,7 +123,7 @@ public class MiniPlayer extends ConstraintLayout {
             );
 
             // Load album art
-            loadAlbumArt(currentTrack.getArtworkUri());
+            loadAlbumArt(currentTrack);
 
         } else {
             setVisibility(View.GONE);
@@ -136,63 +131,56 @@ public class MiniPlayer extends ConstraintLayout {
     }
 
     /**
-     * Load album art and extract dominant color
+     * Load album art and extract dominant color.
+     * Cùng bài thì bỏ qua: updatePlayer được gọi lại mỗi lần đổi trạng thái phát
      */
-    private void loadAlbumArt(Uri artworkUri) {
-        if (artworkUri != null) {
-            Glide.with(getContext())
-                    .load(artworkUri)
-                    .placeholder(R.drawable.ic_music_note)
-                    .error(R.drawable.ic_music_note)
-                    .into(ivAlbumArt);
-
-            // Extract dominant color for background
-            extractDominantColor(artworkUri);
-        } else {
-            ivAlbumArt.setImageResource(R.drawable.ic_music_note);
-            setDefaultBackground();
-        }
+    private void loadAlbumArt(Track track) {
+        if (track.getId() != null && track.getId().equals(artworkTrackId)) return;
+        artworkTrackId = track.getId();
+
+        ArtworkManager artworkManager = ArtworkManager.getInstance();
+        artworkManager.loadInto(ivAlbumArt, track, ArtworkManager.Size.THUMB);
+
+        // Extract dominant color for background
+        extractDominantColor(track);
     }
 
     /**
-     * Extract dominant color from image and set as background
+     * Extract dominant color from image and set as background.
+     * Màu đã trích trước đó (lưu trong ArtworkManager) được áp ngay, không cần chờ ảnh
      */
-    private void extractDominantColor(Uri imageUri) {
-        try {
-            Glide.with(getContext())
-                    .asBitmap()
-                    .load(imageUri)
-                    .into(new CustomTarget<Bitmap>() {
-                        @Override
-                        public void onResourceReady(@NonNull Bitmap resource,
-                                                    @Nullable Transition<? super Bitmap> transition) {
-                            Palette.from(resource).generate(palette -> {
-                                if (palette != null) {
-                                    int dominantColor = palette.getDominantColor(
-                                            getResources().getColor(R.color.card_background)
-                                    );
-
-                                    // Get vibrant color if available, otherwise use dominant
-                                    int vibrantColor = palette.getVibrantColor(dominantColor);
-                                    int finalColor = vibrantColor != dominantColor ? vibrantColor : dominantColor;
-
-                                    // Adjust alpha for better visibility
-                                    int backgroundColor = adjustColorAlpha(finalColor, 0.3f);
-
-                                    // Animate background color change
-                                    animateBackgroundColor(backgroundColor);
-                                }
-                            });
-                        }
-
-                        @Override
-                        public void onLoadCleared(@Nullable Drawable placeholder) {
-                        }
-                    });
-        } catch (Exception e) {
-            Log.e(TAG, "Error extracting dominant color", e);
-            setDefaultBackground();
+    private void extractDominantColor(Track track) {
+        ArtworkManager artworkManager = ArtworkManager.getInstance();
+        ArtworkManager.ArtworkColors cached = artworkManager.getCachedColors(track);
+        if (cached != null) {
+            cardView.setCardBackgroundColor(toBackgroundColor(cached));
+            return;
         }
+
+        artworkManager.loadColors(track, new ArtworkManager.ColorsCallback() {
+            @Override
+            public void onColorsReady(@NonNull ArtworkManager.ArtworkColors colors) {
+                if (track.getId() == null || !track.getId().equals(artworkTrackId)) return;
+                // Animate background color change
+                animateBackgroundColor(toBackgroundColor(colors));
+            }
+
+            @Override
+            public void onColorsFailed() {
+                setDefaultBackground();
+            }
+        });
+    }
+
+    private int toBackgroundColor(ArtworkManager.ArtworkColors colors) {
+        int dominantColor = colors.getDominant(getResources().getColor(R.color.card_background));
+
+        // Get vibrant color if available, otherwise use dominant
+        int vibrantColor = colors.getVibrant(dominantColor);
+        int finalColor = vibrantColor != dominantColor ? vibrantColor : dominantColor;
+
+        // Adjust alpha for better visibility
+        return adjustColorAlpha(finalColor, 0.3f);
     }
 
     /**
@@ -251,6 +239,7 @@ public class MiniPlayer extends ConstraintLayout {
         tvArtist.setText("");
         ivPlayPause.setImageResource(R.drawable.ic_pause);
         setDefaultBackground();
+        artworkTrackId = null;
     }
 
     /**
@@ -1,6 +1,11 @@
 package com.example.musicbanger;
 
 import android.app.Application;
+import com.example.musicbanger.api.MusicApiService;
+import com.example.musicbanger.manager.ArtworkManager;
+import com.example.musicbanger.manager.AudioCacheManager;
+import com.example.musicbanger.manager.DownloadManager;
+import com.example.musicbanger.manager.FeedCacheManager;
 import com.example.musicbanger.manager.UserPlaylistManager;
 
 public class MusicBangerApp extends Application {
@@ -9,7 +14,32 @@ public class MusicBangerApp extends Application {
     public void onCreate() {
         super.onCreate();
 
+        // Tầng mạng dùng chung (Retrofit, Glide, ExoPlayer, tải offline): khởi tạo trước tiên
+        MusicApiService.initialize(this);
+
         // Khởi tạo UserPlaylistManager
         UserPlaylistManager.initialize(this);
+
+        // Cache nhạc trên đĩa dùng chung cho MusicService
+        AudioCacheManager.initialize(this);
+
+        // Hàng đợi tải offline: tải tiếp các job dở dang từ lần chạy trước
+        DownloadManager.initialize(this);
+
+        // Ảnh bìa dùng chung cho notification, MiniPlayer và màn hình đang phát
+        ArtworkManager.initialize(this);
+
+        // Feed / kết quả tìm kiếm đã lưu để hiển thị ngay khi mở app hoặc khi mất mạng
+        FeedCacheManager.initialize(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // App xuống nền: ghi "Nghe gần đây" đang chờ trong bộ đệm xuống DB
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            UserPlaylistManager.getInstance().flushRecentlyPlayed();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.musicbanger;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+import com.example.musicbanger.api.MusicApiService;
+import java.io.InputStream;
+
+/**
+ * Giới hạn cache ảnh của Glide: LRU trong bộ nhớ theo số byte và LRU trên đĩa,
+ * dùng chung cho ArtworkManager và các adapter.
+ */
+@GlideModule
+public final class MusicBangerGlideModule extends AppGlideModule {
+    private static final String DISK_CACHE_DIR = "artwork_cache";
+    private static final long DISK_CACHE_SIZE = 100L * 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(2)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR, DISK_CACHE_SIZE));
+    }
+
+    // Ảnh tải qua OkHttp dùng chung thay vì HttpURLConnection riêng của Glide
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.replace(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(MusicApiService.getMediaClient()));
+    }
+
+    // Không dùng module khai báo trong manifest (Glide v3)
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
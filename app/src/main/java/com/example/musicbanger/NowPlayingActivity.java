@@ -15,20 +15,24 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.core.content.ContextCompat;
 
-import com.bumptech.glide.Glide;
-import com.google.android.exoplayer2.Player;
+import com.example.musicbanger.manager.ArtworkManager;
+import com.example.musicbanger.manager.UserPlaylistManager;
 import com.example.musicbanger.model.Track;
 import com.example.musicbanger.service.MusicService;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class NowPlayingActivity extends AppCompatActivity {
 
     private static final String TAG = "NowPlayingActivity";
+    private static final long STATS_WINDOW_MS = TimeUnit.DAYS.toMillis(7);
+    private static final int TOP_PLAYED_LIMIT = 10;
 
     // UI Components
     private ImageView ivAlbumArt, btnPlayPause, btnBack, btnNext, btnPrevious, btnShuffle, btnRepeat, btnMenu;
@@ -43,23 +47,28 @@ public class NowPlayingActivity extends AppCompatActivity {
     private List<Track> trackList;
     private int currentPosition;
 
-    // Handler for updating progress
     private final Handler handler = new Handler();
-    private final Runnable updateProgress = new Runnable() {
-        @Override
-        public void run() {
-            if (bound && musicService != null && musicService.getPlayer() != null) {
-                Player player = musicService.getPlayer();
-                long currentPos = player.getCurrentPosition();
-                long duration = player.getDuration();
-                if (duration > 0) {
-                    float progressPercent = (float) currentPos / duration;
-                    updateProgressView(progressPercent);
-                    tvCurrentTime.setText(formatTime((int) (currentPos / 1000)));
-                    tvTotalTime.setText(formatTime((int) (duration / 1000)));
-                }
-            }
-            handler.postDelayed(this, 50);
+
+    // Vị trí do MusicService đẩy tới khi đang phát và màn hình đang hiển thị.
+    // 250 ms cho thanh tiến trình mượt, là ước của 1000 nên nhãn thời gian đổi đúng mốc giây
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private boolean visible = false;
+    private boolean seeking = false;
+    private long shownSecond = -1, shownDurationSecond = -1;
+    private final MusicService.PositionObserver positionObserver = (positionMs, durationMs) -> {
+        if (seeking || durationMs <= 0) return;
+        updateProgressView((float) positionMs / durationMs);
+
+        // Chỉ setText khi số giây đổi
+        long second = positionMs / 1000;
+        if (second != shownSecond) {
+            shownSecond = second;
+            tvCurrentTime.setText(formatTime((int) second));
+        }
+        long durationSecond = durationMs / 1000;
+        if (durationSecond != shownDurationSecond) {
+            shownDurationSecond = durationSecond;
+            tvTotalTime.setText(formatTime((int) durationSecond));
         }
     };
 
@@ -117,8 +126,10 @@ public class NowPlayingActivity extends AppCompatActivity {
                 }, 500);
             });
 
-            // Bắt đầu cập nhật progress
-            handler.post(updateProgress);
+            // Bắt đầu nhận vị trí phát
+            if (visible) {
+                musicService.addPositionObserver(positionObserver, PROGRESS_INTERVAL_MS);
+            }
 
             Log.d(TAG, "Service connected and observer registered");
         }
@@ -193,14 +204,15 @@ public class NowPlayingActivity extends AppCompatActivity {
 
             @Override
             public boolean onTouch(View v, MotionEvent event) {
-                if (bound && musicService != null && musicService.getPlayer() != null) {
-                    Player player = musicService.getPlayer();
+                if (bound && musicService != null) {
+                    long duration = musicService.getDuration();
+                    if (duration <= 0) return false;
                     float totalWidth = seekBarLayout.getWidth() - seekThumb.getWidth();
                     if (totalWidth <= 0) return false;
 
                     switch (event.getAction()) {
                         case MotionEvent.ACTION_DOWN:
-                            handler.removeCallbacks(updateProgress);
+                            seeking = true;
                             initialX = seekThumb.getTranslationX();
                             touchDownX = event.getRawX();
                             return true;
@@ -216,15 +228,20 @@ public class NowPlayingActivity extends AppCompatActivity {
                             float progressPercent = newX / totalWidth;
                             updateProgressView(progressPercent);
 
-                            long newPosition = (long) (progressPercent * player.getDuration());
-                            tvCurrentTime.setText(formatTime((int) (newPosition / 1000)));
+                            long newPosition = (long) (progressPercent * duration);
+                            shownSecond = newPosition / 1000;
+                            tvCurrentTime.setText(formatTime((int) shownSecond));
                             return true;
 
                         case MotionEvent.ACTION_UP:
                             float finalProgress = (seekThumb.getTranslationX() / totalWidth);
-                            long finalPosition = (long) (finalProgress * player.getDuration());
-                            player.seekTo(finalPosition);
-                            handler.post(updateProgress);
+                            long finalPosition = (long) (finalProgress * duration);
+                            seeking = false;
+                            musicService.seekTo(finalPosition);
+                            return true;
+
+                        case MotionEvent.ACTION_CANCEL:
+                            seeking = false;
                             return true;
                     }
                 }
@@ -316,14 +333,7 @@ public class NowPlayingActivity extends AppCompatActivity {
             tvSongTitle.setText(currentTrack.getTitle() != null ? currentTrack.getTitle() : getString(R.string.default_song_title));
             tvArtistName.setText(currentTrack.getArtistName() != null ? currentTrack.getArtistName() : getString(R.string.default_artist_name));
 
-            if (currentTrack.getArtworkUri() != null) {
-                Glide.with(this).load(currentTrack.getArtworkUri())
-                        .placeholder(R.drawable.ic_music_note)
-                        .error(R.drawable.ic_music_note)
-                        .into(ivAlbumArt);
-            } else {
-                ivAlbumArt.setImageResource(R.drawable.ic_music_note);
-            }
+            ArtworkManager.getInstance().loadInto(ivAlbumArt, currentTrack, ArtworkManager.Size.FULL);
 
             // CHỈ CẬP NHẬT SHUFFLE VÀ REPEAT
             if (musicService != null) {
@@ -425,18 +435,79 @@ public class NowPlayingActivity extends AppCompatActivity {
 
     private void showMenuOptions() {
         Log.d(TAG, "Menu clicked");
-        Toast.makeText(this, "Menu clicked", Toast.LENGTH_SHORT).show();
+        String[] options = {"Thống kê lượt nghe", "Nghe nhiều nhất 7 ngày qua"};
+        new AlertDialog.Builder(this)
+                .setItems(options, (dialog, which) -> {
+                    if (which == 0) {
+                        showPlayCount();
+                    } else {
+                        showTopPlayed();
+                    }
+                })
+                .show();
+    }
+
+    // Số lượt nghe của bài đang phát (tổng và trong 7 ngày qua)
+    private void showPlayCount() {
+        Track currentTrack = bound && musicService != null ? musicService.getCurrentTrack() : null;
+        if (currentTrack == null) {
+            Toast.makeText(this, "Không có bài hát đang phát", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        long since = System.currentTimeMillis() - STATS_WINDOW_MS;
+        UserPlaylistManager.getInstance().getPlayCount(currentTrack, since, (total, recent) -> {
+            if (isFinishing()) return;
+            new AlertDialog.Builder(this)
+                    .setTitle(currentTrack.getTitle())
+                    .setMessage("Đã nghe " + total + " lần\nTrong 7 ngày qua: " + recent + " lần")
+                    .setPositiveButton("OK", null)
+                    .show();
+        });
+    }
+
+    // Các bài nghe nhiều nhất 7 ngày qua, chọn 1 bài để phát
+    private void showTopPlayed() {
+        long now = System.currentTimeMillis();
+        UserPlaylistManager.getInstance().getTopPlayedTracks(now - STATS_WINDOW_MS, now, TOP_PLAYED_LIMIT, tracks -> {
+            if (isFinishing()) return;
+            if (tracks.isEmpty()) {
+                Toast.makeText(this, "Chưa có lịch sử nghe 7 ngày qua", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String[] titles = new String[tracks.size()];
+            for (int i = 0; i < tracks.size(); i++) {
+                Track track = tracks.get(i);
+                titles[i] = (i + 1) + ". " + track.getTitle()
+                        + (track.getArtistName() != null ? " - " + track.getArtistName() : "");
+            }
+            new AlertDialog.Builder(this)
+                    .setTitle("Nghe nhiều nhất 7 ngày qua")
+                    .setItems(titles, (dialog, which) -> {
+                        if (bound && musicService != null) {
+                            musicService.playTrack(tracks.get(which));
+                        }
+                    })
+                    .setNegativeButton("Đóng", null)
+                    .show();
+        });
     }
 
     @Override
     protected void onStart() {
         super.onStart();
+        visible = true;
+        if (bound && musicService != null) {
+            musicService.addPositionObserver(positionObserver, PROGRESS_INTERVAL_MS);
+        }
     }
 
     @Override
     protected void onStop() {
         super.onStop();
-        handler.removeCallbacks(updateProgress);
+        visible = false;
+        if (bound && musicService != null) {
+            musicService.removePositionObserver(positionObserver);
+        }
     }
 
     @Override
@@ -3,6 +3,7 @@ package com.example.musicbanger;
 import android.content.ComponentName;
 import android.content.Intent;
 import android.content.ServiceConnection;
+import android.content.res.ColorStateList;
 import android.os.Bundle;
 import android.os.IBinder;
 import android.view.View;
@@ -10,11 +11,16 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import com.example.musicbanger.adapters.PagedSongAdapter;
 import com.example.musicbanger.adapters.SongAdapter;
+import com.example.musicbanger.manager.DownloadManager;
 import com.example.musicbanger.manager.UserPlaylistManager;
 import com.example.musicbanger.model.Playlist;
+import com.example.musicbanger.model.PlaylistSummary;
 import com.example.musicbanger.model.Track;
 import com.example.musicbanger.service.MusicService;
 
@@ -26,12 +32,11 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
         SongAdapter.OnSongMenuClickListener {
 
     private RecyclerView recyclerViewTracks;
-    private SongAdapter songAdapter;
-    private List<Track> tracks;
+    private PagedSongAdapter songAdapter;
     private Playlist currentPlaylist;
 
     private TextView tvPlaylistName, tvTrackCount, tvPlaylistDescription, tvEmptyState;
-    private ImageView btnBack, btnPlayAllHeader, ivPlaylistArt;
+    private ImageView btnBack, btnPlayAllHeader, btnDownloadPlaylist, ivPlaylistArt;
     private View btnShufflePlay, btnPlayAllMain; // ĐÃ SỬA TÊN
 
     private MusicService musicService;
@@ -39,6 +44,9 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
 
     private String playlistId;
     private String playlistName;
+    private int trackCount = 0;
+    private boolean playlistOffline = false;
+    private int downloadedCount = 0;
 
     private ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
@@ -66,6 +74,7 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
         setupViews();
         setupClickListeners();
         loadPlaylistData();
+        observeTracks();
 
         // Kết nối service
         Intent intent = new Intent(this, MusicService.class);
@@ -80,11 +89,16 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
         tvEmptyState = findViewById(R.id.tvEmptyState);
         btnBack = findViewById(R.id.btnBack);
         btnPlayAllHeader = findViewById(R.id.btnPlayAllHeader); // ĐÃ SỬA TÊN
+        btnDownloadPlaylist = findViewById(R.id.btnDownloadPlaylist);
         ivPlaylistArt = findViewById(R.id.ivPlaylistArt);
         btnShufflePlay = findViewById(R.id.btnShufflePlay);
         btnPlayAllMain = findViewById(R.id.btnPlayAllMain); // ĐÃ SỬA TÊN
 
         recyclerViewTracks.setLayoutManager(new LinearLayoutManager(this));
+
+        songAdapter = new PagedSongAdapter(this);
+        songAdapter.setOnSongMenuClickListener(this);
+        recyclerViewTracks.setAdapter(songAdapter);
     }
 
     private void setupClickListeners() {
@@ -95,21 +109,75 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
         btnPlayAllMain.setOnClickListener(v -> playPlaylist(false)); // ĐÃ SỬA TÊN
 
         btnShufflePlay.setOnClickListener(v -> playPlaylist(true));
+
+        btnDownloadPlaylist.setOnClickListener(v -> toggleOffline());
+    }
+
+    private void toggleOffline() {
+        if (playlistId == null) return;
+
+        boolean offline = !playlistOffline;
+        DownloadManager.getInstance().setPlaylistOffline(playlistId, offline);
+        Toast.makeText(this, offline ? "Đang tải playlist để nghe offline" : "Đã xóa bản tải offline",
+                Toast.LENGTH_SHORT).show();
     }
 
     private void loadPlaylistData() {
         if (playlistId != null) {
-            currentPlaylist = UserPlaylistManager.getInstance().getPlaylistById(playlistId);
-            if (currentPlaylist != null) {
+            UserPlaylistManager.getInstance().getPlaylistInfo(playlistId, playlist -> {
+                if (playlist == null || isFinishing()) return;
+
+                currentPlaylist = playlist;
                 updatePlaylistHeader();
-                loadTracks();
-            }
+
+                // BẬT option xóa cho playlist detail (trừ playlist mặc định)
+                songAdapter.setShowRemoveOption(!currentPlaylist.getName().equals("Bài hát yêu thích") &&
+                        !currentPlaylist.getName().equals("Nghe gần đây"));
+            });
+        }
+    }
+
+    // Danh sách bài hát được nạp theo trang và tự cập nhật khi playlist thay đổi
+    private void observeTracks() {
+        if (playlistId == null) return;
+
+        // Luồng trang được cache trong ViewModel: đổi cấu hình không nạp lại từ đầu
+        new ViewModelProvider(this).get(PlaylistDetailViewModel.class)
+                .getTracks(playlistId)
+                .observe(this, pagingData -> songAdapter.submitData(getLifecycle(), pagingData));
+
+        UserPlaylistManager.getInstance().observeTrackCount(playlistId)
+                .observe(this, count -> {
+                    trackCount = count != null ? count : 0;
+                    updateTrackCountText();
+                    updateEmptyState();
+                });
+
+        DownloadManager.getInstance().observePlaylistOffline(playlistId)
+                .observe(this, offline -> {
+                    playlistOffline = offline != null && offline;
+                    btnDownloadPlaylist.setImageTintList(ColorStateList.valueOf(ContextCompat.getColor(this,
+                            playlistOffline ? R.color.primary_color : R.color.icon_color_secondary)));
+                    updateTrackCountText();
+                });
+
+        DownloadManager.getInstance().observeDownloadedCount(playlistId)
+                .observe(this, count -> {
+                    downloadedCount = count != null ? count : 0;
+                    updateTrackCountText();
+                });
+    }
+
+    private void updateTrackCountText() {
+        if (playlistOffline) {
+            tvTrackCount.setText(trackCount + " bài hát • đã tải " + downloadedCount + "/" + trackCount);
+        } else {
+            tvTrackCount.setText(trackCount + " bài hát");
         }
     }
 
     private void updatePlaylistHeader() {
         tvPlaylistName.setText(currentPlaylist.getName());
-        tvTrackCount.setText(currentPlaylist.getTrackCount() + " bài hát");
         tvPlaylistDescription.setText(currentPlaylist.getDescription());
 
         // Set icon playlist
@@ -122,26 +190,8 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
         }
     }
 
-    private void loadTracks() {
-        if (currentPlaylist != null) {
-            tracks = new ArrayList<>(currentPlaylist.getTracks()); // TẠO DANH SÁCH MỚI
-            updateEmptyState();
-
-            songAdapter = new SongAdapter(tracks, this, false);
-            songAdapter.setOnSongMenuClickListener(this);
-
-            // BẬT option xóa cho playlist detail (trừ playlist mặc định)
-            if (!currentPlaylist.getName().equals("Bài hát yêu thích") &&
-                    !currentPlaylist.getName().equals("Nghe gần đây")) {
-                songAdapter.setShowRemoveOption(true);
-            }
-
-            recyclerViewTracks.setAdapter(songAdapter);
-        }
-    }
-
     private void updateEmptyState() {
-        if (tracks.isEmpty()) {
+        if (trackCount == 0) {
             tvEmptyState.setVisibility(View.VISIBLE);
             recyclerViewTracks.setVisibility(View.GONE);
         } else {
@@ -150,25 +200,39 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
         }
     }
 
+    // Danh sách đầy đủ chỉ cần khi bắt đầu phát (để dựng hàng đợi), đọc ở luồng nền
+    private void loadFullPlaylist(UserPlaylistManager.PlaylistCallback callback) {
+        if (playlistId == null) return;
+        UserPlaylistManager.getInstance().getPlaylistById(playlistId, playlist -> {
+            if (playlist != null && !playlist.getTracks().isEmpty() && !isFinishing()) {
+                callback.onPlaylistLoaded(playlist);
+            }
+        });
+    }
+
     private void playPlaylist(boolean shuffle) {
-        if (currentPlaylist != null && !currentPlaylist.getTracks().isEmpty()) {
+        if (currentPlaylist != null && trackCount > 0) {
             if (serviceBound && musicService != null) {
-                if (shuffle) {
-                    // PHÁT NGẪU NHIÊN CHỈ TRONG PLAYLIST NÀY
-                    musicService.shufflePlayPlaylist(currentPlaylist);
-                } else {
-                    // PHÁT BÌNH THƯỜNG
-                    musicService.playUserPlaylist(currentPlaylist, 0);
-                }
-
-                // Mở NowPlayingActivity
-                Intent intent = new Intent(this, NowPlayingActivity.class);
-                startActivity(intent);
-
-                Toast.makeText(this,
-                        shuffle ? "Đang phát ngẫu nhiên: " + currentPlaylist.getName()
-                                : "Đang phát playlist: " + currentPlaylist.getName(),
-                        Toast.LENGTH_SHORT).show();
+                loadFullPlaylist(fullPlaylist -> {
+                    if (!serviceBound || musicService == null) return;
+
+                    if (shuffle) {
+                        // PHÁT NGẪU NHIÊN CHỈ TRONG PLAYLIST NÀY
+                        musicService.shufflePlayPlaylist(fullPlaylist);
+                    } else {
+                        // PHÁT BÌNH THƯỜNG
+                        musicService.playUserPlaylist(fullPlaylist, 0);
+                    }
+
+                    // Mở NowPlayingActivity
+                    Intent intent = new Intent(this, NowPlayingActivity.class);
+                    startActivity(intent);
+
+                    Toast.makeText(this,
+                            shuffle ? "Đang phát ngẫu nhiên: " + currentPlaylist.getName()
+                                    : "Đang phát playlist: " + currentPlaylist.getName(),
+                            Toast.LENGTH_SHORT).show();
+                });
             }
         } else {
             Toast.makeText(this, "Playlist trống", Toast.LENGTH_SHORT).show();
@@ -179,10 +243,18 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
     @Override
     public void onSongClick(int position, boolean isRecent) {
         if (serviceBound && musicService != null && currentPlaylist != null) {
-            musicService.playUserPlaylist(currentPlaylist, position);
+            Track clickedTrack = songAdapter.getTrackAt(position);
+            if (clickedTrack == null) return;
 
-            Intent intent = new Intent(this, NowPlayingActivity.class);
-            startActivity(intent);
+            loadFullPlaylist(fullPlaylist -> {
+                if (!serviceBound || musicService == null) return;
+
+                int startIndex = Math.max(0, fullPlaylist.getTracks().indexOf(clickedTrack));
+                musicService.playUserPlaylist(fullPlaylist, startIndex);
+
+                Intent intent = new Intent(this, NowPlayingActivity.class);
+                startActivity(intent);
+            });
         }
     }
 
@@ -205,65 +277,62 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
 
     @Override
     public void onToggleFavorite(Track track) {
-        UserPlaylistManager.getInstance().toggleFavorite(track);
-        boolean isFavorite = UserPlaylistManager.getInstance().isFavorite(track);
-
-        Toast.makeText(this,
-                isFavorite ? "Đã thêm vào yêu thích" : "Đã bỏ khỏi yêu thích",
-                Toast.LENGTH_SHORT).show();
-
-        // Reload nếu đang ở playlist yêu thích
-        if (currentPlaylist.getName().equals("Bài hát yêu thích")) {
-            loadPlaylistData();
-        }
+        UserPlaylistManager.getInstance().toggleFavorite(track, isFavorite ->
+                Toast.makeText(this,
+                        isFavorite ? "Đã thêm vào yêu thích" : "Đã bỏ khỏi yêu thích",
+                        Toast.LENGTH_SHORT).show());
+        // Playlist yêu thích tự cập nhật qua PagingSource, không cần reload
     }
 
     @Override
     public void onAddToQueue(Track track) {
         if (serviceBound && musicService != null) {
-            musicService.getPlaylistManager().getPlaylist().add(
-                    musicService.getPlaylistManager().getCurrentIndex() + 1, track
-            );
-            Toast.makeText(this, "Đã thêm vào hàng đợi", Toast.LENGTH_SHORT).show();
+            if (musicService.addToQueue(track)) {
+                Toast.makeText(this, "Đã thêm vào hàng đợi", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Không thể phát bài hát này", Toast.LENGTH_SHORT).show();
+            }
         }
     }
 
     private void showAddToOtherPlaylistDialog(Track track) {
-        List<Playlist> allPlaylists = UserPlaylistManager.getInstance().getAllPlaylists();
-        // Lọc bỏ playlist hiện tại
-        List<Playlist> otherPlaylists = new ArrayList<>();
-        for (Playlist playlist : allPlaylists) {
-            if (!playlist.getId().equals(currentPlaylist.getId())) {
-                otherPlaylists.add(playlist);
+        UserPlaylistManager.getInstance().getPlaylistSummaries(allPlaylists -> {
+            if (isFinishing()) return;
+
+            // Lọc bỏ playlist hiện tại
+            List<PlaylistSummary> otherPlaylists = new ArrayList<>();
+            for (PlaylistSummary playlist : allPlaylists) {
+                if (!playlist.getId().equals(playlistId)) {
+                    otherPlaylists.add(playlist);
+                }
             }
-        }
 
-        if (otherPlaylists.isEmpty()) {
-            Toast.makeText(this, "Không có playlist khác", Toast.LENGTH_SHORT).show();
-            return;
-        }
+            if (otherPlaylists.isEmpty()) {
+                Toast.makeText(this, "Không có playlist khác", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-        String[] playlistNames = new String[otherPlaylists.size()];
-        for (int i = 0; i < otherPlaylists.size(); i++) {
-            playlistNames[i] = otherPlaylists.get(i).getName();
-        }
+            String[] playlistNames = new String[otherPlaylists.size()];
+            for (int i = 0; i < otherPlaylists.size(); i++) {
+                playlistNames[i] = otherPlaylists.get(i).getName();
+            }
 
-        new android.app.AlertDialog.Builder(this)
-                .setTitle("Thêm vào playlist")
-                .setItems(playlistNames, (dialog, which) -> {
-                    Playlist selectedPlaylist = otherPlaylists.get(which);
-                    UserPlaylistManager.getInstance().addTrackToPlaylist(selectedPlaylist.getId(), track);
-                    Toast.makeText(this, "Đã thêm vào " + selectedPlaylist.getName(), Toast.LENGTH_SHORT).show();
-                })
-                .setNegativeButton("Hủy", null)
-                .show();
+            new android.app.AlertDialog.Builder(this)
+                    .setTitle("Thêm vào playlist")
+                    .setItems(playlistNames, (dialog, which) -> {
+                        PlaylistSummary selectedPlaylist = otherPlaylists.get(which);
+                        UserPlaylistManager.getInstance().addTrackToPlaylist(selectedPlaylist.getId(), track);
+                        Toast.makeText(this, "Đã thêm vào " + selectedPlaylist.getName(), Toast.LENGTH_SHORT).show();
+                    })
+                    .setNegativeButton("Hủy", null)
+                    .show();
+        });
     }
 
     // Xử lý xóa bài hát khỏi playlist
     private void removeTrackFromPlaylist(Track track) {
         if (currentPlaylist != null) {
             UserPlaylistManager.getInstance().removeTrackFromPlaylist(currentPlaylist.getId(), track);
-            loadPlaylistData(); // Reload
             Toast.makeText(this, "Đã xóa khỏi playlist", Toast.LENGTH_SHORT).show();
         }
     }
@@ -279,14 +348,6 @@ public class PlaylistDetailActivity extends AppCompatActivity implements
     @Override
     protected void onResume() {
         super.onResume();
-        loadPlaylistData(); // Reload khi quay lại
-
-        // ĐẢM BẢO CẬP NHẬT DỮ LIỆU MỚI NHẤT
-        if (playlistId != null) {
-            currentPlaylist = UserPlaylistManager.getInstance().getPlaylistById(playlistId);
-            if (currentPlaylist != null) {
-                updatePlaylistHeader();
-                loadTracks();
-            }
-        }
-    }}
\ No newline at end of file
+        loadPlaylistData(); // Reload header khi quay lại, danh sách bài hát tự cập nhật
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.musicbanger;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.ViewModel;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import com.example.musicbanger.manager.UserPlaylistManager;
+import com.example.musicbanger.model.Track;
+
+/**
+ * Giữ luồng PagingData của PlaylistDetailActivity qua các lần xoay màn hình / đổi cấu hình:
+ * Activity mới gắn lại vào luồng đã cache (cachedIn viewModelScope) thay vì tạo Pager mới
+ * và nạp lại từ trang đầu, nên giữ được các trang đã nạp và vị trí cuộn.
+ */
+public class PlaylistDetailViewModel extends ViewModel {
+
+    private String playlistId;
+    private LiveData<PagingData<Track>> tracks;
+
+    public LiveData<PagingData<Track>> getTracks(String playlistId) {
+        if (tracks == null || !playlistId.equals(this.playlistId)) {
+            this.playlistId = playlistId;
+            tracks = PagingLiveData.cachedIn(
+                    UserPlaylistManager.getInstance().getPlaylistTracksPaged(playlistId), this);
+        }
+        return tracks;
+    }
+}
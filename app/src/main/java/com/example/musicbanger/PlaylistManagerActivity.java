@@ -15,15 +15,16 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.musicbanger.adapters.PlaylistAdapter;
 import com.example.musicbanger.manager.UserPlaylistManager;
-import com.example.musicbanger.model.Playlist;
+import com.example.musicbanger.model.PlaylistSummary;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import java.util.ArrayList;
 import java.util.List;
 
 public class PlaylistManagerActivity extends AppCompatActivity implements PlaylistAdapter.OnPlaylistClickListener {
 
     private RecyclerView recyclerViewPlaylists;
     private PlaylistAdapter playlistAdapter;
-    private List<Playlist> playlists;
+    private List<PlaylistSummary> playlists = new ArrayList<>();
     private TextView tvEmptyState;
     private ImageView btnBack, btnCreatePlaylist;
     private FloatingActionButton fabAddPlaylist;
@@ -46,6 +47,9 @@ public class PlaylistManagerActivity extends AppCompatActivity implements Playli
         fabAddPlaylist = findViewById(R.id.fabAddPlaylist);
 
         recyclerViewPlaylists.setLayoutManager(new LinearLayoutManager(this));
+
+        playlistAdapter = new PlaylistAdapter(playlists, this);
+        recyclerViewPlaylists.setAdapter(playlistAdapter);
     }
 
     private void setupClickListeners() {
@@ -55,16 +59,17 @@ public class PlaylistManagerActivity extends AppCompatActivity implements Playli
         fabAddPlaylist.setOnClickListener(v -> showCreatePlaylistDialog());
     }
 
+    // Chỉ đọc thông tin tóm tắt; Room tự phát lại danh sách khi playlist / bài hát thay đổi
     private void loadPlaylists() {
-        playlists = UserPlaylistManager.getInstance().getAllPlaylists();
-        updateEmptyState();
-
-        playlistAdapter = new PlaylistAdapter(playlists, this);
-        recyclerViewPlaylists.setAdapter(playlistAdapter);
+        UserPlaylistManager.getInstance().observePlaylistSummaries().observe(this, summaries -> {
+            playlists = summaries != null ? summaries : new ArrayList<>();
+            playlistAdapter.updatePlaylists(playlists);
+            updateEmptyState();
+        });
     }
 
     private void updateEmptyState() {
-        if (playlists.isEmpty() || (playlists.size() <= 2 &&
+        if (playlists.isEmpty() || (playlists.size() == 2 &&
                 playlists.get(0).getName().equals("Bài hát yêu thích") &&
                 playlists.get(1).getName().equals("Nghe gần đây"))) {
             tvEmptyState.setVisibility(View.VISIBLE);
@@ -99,29 +104,28 @@ public class PlaylistManagerActivity extends AppCompatActivity implements Playli
 
     private void createNewPlaylist(String name) {
         UserPlaylistManager.getInstance().createPlaylist(name, "Playlist của tôi");
-        loadPlaylists(); // Reload danh sách
         Toast.makeText(this, "Đã tạo playlist: " + name, Toast.LENGTH_SHORT).show();
     }
 
     // Implement interface từ PlaylistAdapter
     @Override
-    public void onPlaylistClick(Playlist playlist) {
+    public void onPlaylistClick(PlaylistSummary playlist) {
         openPlaylistDetail(playlist);
     }
 
     @Override
-    public void onPlaylistLongClick(Playlist playlist) {
+    public void onPlaylistLongClick(PlaylistSummary playlist) {
         showPlaylistOptions(playlist);
     }
 
-    private void openPlaylistDetail(Playlist playlist) {
+    private void openPlaylistDetail(PlaylistSummary playlist) {
         Intent intent = new Intent(this, PlaylistDetailActivity.class);
         intent.putExtra("playlist_id", playlist.getId());
         intent.putExtra("playlist_name", playlist.getName());
         startActivity(intent);
     }
 
-    private void showPlaylistOptions(Playlist playlist) {
+    private void showPlaylistOptions(PlaylistSummary playlist) {
         // Không cho phép xóa playlist mặc định
         if (playlist.getName().equals("Bài hát yêu thích") ||
                 playlist.getName().equals("Nghe gần đây")) {
@@ -144,7 +148,7 @@ public class PlaylistManagerActivity extends AppCompatActivity implements Playli
                 .show();
     }
 
-    private void showRenamePlaylistDialog(Playlist playlist) {
+    private void showRenamePlaylistDialog(PlaylistSummary playlist) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Đổi tên playlist");
 
@@ -158,7 +162,6 @@ public class PlaylistManagerActivity extends AppCompatActivity implements Playli
             String newName = input.getText().toString().trim();
             if (!newName.isEmpty() && !newName.equals(playlist.getName())) {
                 UserPlaylistManager.getInstance().renamePlaylist(playlist.getId(), newName);
-                loadPlaylists(); // Reload
                 Toast.makeText(this, "Đã đổi tên playlist", Toast.LENGTH_SHORT).show();
             }
         });
@@ -167,22 +170,15 @@ public class PlaylistManagerActivity extends AppCompatActivity implements Playli
         builder.show();
     }
 
-    private void showDeletePlaylistConfirmation(Playlist playlist) {
+    private void showDeletePlaylistConfirmation(PlaylistSummary playlist) {
         new AlertDialog.Builder(this)
                 .setTitle("Xóa playlist")
                 .setMessage("Bạn có chắc muốn xóa playlist \"" + playlist.getName() + "\"?")
                 .setPositiveButton("Xóa", (dialog, which) -> {
                     UserPlaylistManager.getInstance().deletePlaylist(playlist.getId());
-                    loadPlaylists(); // Reload
                     Toast.makeText(this, "Đã xóa playlist", Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton("Hủy", null)
                 .show();
     }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadPlaylists(); // Reload khi quay lại từ playlist detail
-    }
 }
\ No newline at end of file
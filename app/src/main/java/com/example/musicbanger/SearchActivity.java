@@ -1,6 +1,8 @@
 package com.example.musicbanger;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -8,10 +10,14 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.Rect;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.util.LruCache;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
@@ -23,15 +29,19 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.musicbanger.adapters.SongAdapter;
+import com.example.musicbanger.adapters.StaticViewAdapter;
 import com.example.musicbanger.api.JamendoApi;
+import com.example.musicbanger.api.SearchResultsLoader;
+import com.example.musicbanger.manager.FeedCacheManager;
+import com.example.musicbanger.manager.UserPlaylistManager;
 import com.example.musicbanger.model.Track;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.textfield.TextInputLayout;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -42,8 +52,10 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
     private EditText etSearch;
     private ImageView btnBack, btnClear;
     private ProgressBar loadingProgress;
-    private TextView tvSearchResultsTitle, tvEmptyState;
-    private RecyclerView recyclerViewSearchResults, recyclerViewGenreSuggestions;
+    private TextView tvSearchResultsTitle, tvEmptyState, tvGenreSuggestionsTitle;
+    private RecyclerView recyclerViewSearch;
+    private LinearLayoutManager searchLayoutManager;
+    private View searchResultsHeader, searchSuggestionsSection, searchStatusFooter;
     private LinearLayout layoutSearchSuggestions;
 
     private SongAdapter searchResultsAdapter;
@@ -53,8 +65,24 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
     private List<Track> searchResults = new ArrayList<>();
     private List<Track> genreSuggestions = new ArrayList<>();
 
-    private Timer searchTimer;
+    // Debounce trên main looper: 1 Runnable dời lịch mỗi lần gõ thay vì 1 Timer (1 thread) mỗi phím
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pendingSearch = this::onSearchTextSettled;
+    private long searchSequence; // Tăng mỗi truy vấn; kết quả mang số cũ bị bỏ
+    private String currentQuery = "";
+    private List<Track> localResults = new ArrayList<>();
+    private List<Track> remoteResults = new ArrayList<>();
+    private String genresLoadedFor;
+    private SearchResultsLoader searchLoader;
+    private long nextPageRetryAt; // Trang sau lỗi: chờ 1 lúc mới thử lại khi cuộn tiếp
+    private static final int LOCAL_RESULT_LIMIT = 20;
     private static final int SEARCH_DELAY = 800; // milliseconds
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final long PAGE_RETRY_DELAY_MS = 3000;
+    // Nạp trang sau khi dòng cuối đang thấy còn cách bài cuối không quá chừng này dòng
+    private static final int PREFETCH_DISTANCE = 5;
+    // Số dòng đứng trước kết quả trong ConcatAdapter (tiêu đề kết quả)
+    private static final int RESULTS_START_POSITION = 1;
 
     // Các từ khóa tìm kiếm gợi ý
     private final String[] SEARCH_SUGGESTIONS = {
@@ -85,24 +113,48 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
         etSearch = findViewById(R.id.etSearch);
         btnBack = findViewById(R.id.btnBack);
         btnClear = findViewById(R.id.btnClear);
-        loadingProgress = findViewById(R.id.loadingProgress);
-        tvSearchResultsTitle = findViewById(R.id.tvSearchResultsTitle);
-        tvEmptyState = findViewById(R.id.tvEmptyState);
-        recyclerViewSearchResults = findViewById(R.id.recyclerViewSearchResults);
-        recyclerViewGenreSuggestions = findViewById(R.id.recyclerViewGenreSuggestions);
-        layoutSearchSuggestions = findViewById(R.id.layoutSearchSuggestions);
+        recyclerViewSearch = findViewById(R.id.recyclerViewSearch);
+
+        // Các khối tĩnh là dòng của recyclerViewSearch nên inflate riêng và giữ tham chiếu
+        LayoutInflater inflater = LayoutInflater.from(this);
+        searchResultsHeader = inflater.inflate(R.layout.item_search_results_header, recyclerViewSearch, false);
+        tvSearchResultsTitle = searchResultsHeader.findViewById(R.id.tvSearchResultsTitle);
+        searchSuggestionsSection = inflater.inflate(
+                R.layout.item_search_suggestions, recyclerViewSearch, false);
+        layoutSearchSuggestions = searchSuggestionsSection.findViewById(R.id.layoutSearchSuggestions);
+        tvGenreSuggestionsTitle = searchSuggestionsSection.findViewById(R.id.tvGenreSuggestionsTitle);
+        searchStatusFooter = inflater.inflate(R.layout.item_search_status, recyclerViewSearch, false);
+        loadingProgress = searchStatusFooter.findViewById(R.id.loadingProgress);
+        tvEmptyState = searchStatusFooter.findViewById(R.id.tvEmptyState);
     }
 
     private void setupRecyclerViews() {
         // Adapter cho kết quả tìm kiếm (set isHorizontal = false để dùng item_song_suggestion)
         searchResultsAdapter = new SongAdapter(searchResults, this, false);
-        recyclerViewSearchResults.setLayoutManager(new LinearLayoutManager(this));
-        recyclerViewSearchResults.setAdapter(searchResultsAdapter);
-
         // Adapter cho đề xuất thể loại
         genreSuggestionsAdapter = new SongAdapter(genreSuggestions, this, false);
-        recyclerViewGenreSuggestions.setLayoutManager(new LinearLayoutManager(this));
-        recyclerViewGenreSuggestions.setAdapter(genreSuggestionsAdapter);
+        searchLoader = new SearchResultsLoader(
+                com.example.musicbanger.api.MusicApiService.getJamendoApi(), SEARCH_PAGE_SIZE);
+
+        // Cả trang là 1 RecyclerView: chỉ các dòng đang thấy được bind, kết quả dài không
+        // bị đo / bind hết 1 lần như khi đặt RecyclerView wrap_content trong NestedScrollView
+        searchLayoutManager = new LinearLayoutManager(this);
+        recyclerViewSearch.setLayoutManager(searchLayoutManager);
+        recyclerViewSearch.setAdapter(new ConcatAdapter(
+                new StaticViewAdapter(searchResultsHeader),
+                searchResultsAdapter,
+                new StaticViewAdapter(searchSuggestionsSection),
+                genreSuggestionsAdapter,
+                new StaticViewAdapter(searchStatusFooter)));
+
+        // onScrolled cũng được gọi sau mỗi lần layout (vd. trang mới được chèn), nên trang ngắn
+        // chưa lấp đầy màn hình sẽ tự nạp tiếp
+        recyclerViewSearch.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                maybeLoadNextPage();
+            }
+        });
     }
 
     private void setupSearchSuggestions() {
@@ -151,24 +203,8 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
                 btnClear.setVisibility(s.length() > 0 ? View.VISIBLE : View.GONE);
 
                 // Debounce search
-                if (searchTimer != null) {
-                    searchTimer.cancel();
-                }
-
-                searchTimer = new Timer();
-                searchTimer.schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        runOnUiThread(() -> {
-                            String query = s.toString().trim();
-                            if (query.length() >= 2) {
-                                performSearch(query);
-                            } else if (query.isEmpty()) {
-                                clearSearchResults();
-                            }
-                        });
-                    }
-                }, SEARCH_DELAY);
+                searchHandler.removeCallbacks(pendingSearch);
+                searchHandler.postDelayed(pendingSearch, SEARCH_DELAY);
             }
         });
 
@@ -176,81 +212,137 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
         etSearch.setOnEditorActionListener((v, actionId, event) -> {
             String query = etSearch.getText().toString().trim();
             if (query.length() >= 2) {
+                searchHandler.removeCallbacks(pendingSearch);
                 performSearch(query);
             }
             return true;
         });
     }
 
+    private void onSearchTextSettled() {
+        String query = etSearch.getText().toString().trim();
+        if (query.length() >= 2) {
+            performSearch(query);
+        } else if (query.isEmpty()) {
+            clearSearchResults();
+        }
+    }
+
     private void performSearch(String query) {
+        searchHandler.removeCallbacks(pendingSearch);
         if (query.isEmpty()) return;
-
-        // Check cache
-        List<Track> cachedResults = apiCache.get("search_" + query);
-        if (cachedResults != null) {
-            Log.d("SearchActivity", "✅ Loaded from cache: " + query);
-            processSearchResults(cachedResults, query);
-            return;
-        }
+        // Cùng truy vấn đang chạy / đang hiển thị (gõ lại rồi xóa, bấm lại chip): không gửi lại
+        if (query.equals(currentQuery) && searchLoader.isCurrent(query)) return;
+        currentQuery = query;
+        remoteResults = new ArrayList<>();
+        long sequence = ++searchSequence;
+
+        // Tìm trong thư viện trên máy trước (FTS, gần như tức thì) trong lúc chờ mạng
+        localResults = new ArrayList<>();
+        UserPlaylistManager.getInstance().searchLocalTracks(query, LOCAL_RESULT_LIMIT, tracks -> {
+            if (sequence != searchSequence) return;
+            localResults = tracks;
+            if (!tracks.isEmpty()) {
+                processSearchResults(mergeResults(tracks, remoteResults), query);
+            }
+        });
 
         Log.d("SearchActivity", "🔍 Searching for: " + query);
         showLoading(true);
         showEmptyState(false);
+        nextPageRetryAt = 0;
 
-        JamendoApi api = com.example.musicbanger.api.MusicApiService.getJamendoApi();
-        String clientId = "06ac505c";
-
-        api.searchTracks(
-                clientId,
-                "json",
-                10, // Giảm limit để load nhanh
-                query
-        ).enqueue(new Callback<JamendoApi.JamendoResponse>() {
+        // Loader tự hủy Call cũ và bỏ response trễ; kiểm tra thêm số thứ tự phía màn hình
+        searchLoader.start(query, new SearchResultsLoader.PageCallback() {
             @Override
-            public void onResponse(Call<JamendoApi.JamendoResponse> call,
-                                   Response<JamendoApi.JamendoResponse> response) {
+            public void onPageLoaded(String pageQuery, List<Track> page, boolean firstPage, boolean hasMore) {
+                if (sequence != searchSequence) return;
                 showLoading(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    List<JamendoApi.JamendoTrack> jamendoTracks = response.body().results;
-                    if (jamendoTracks != null && !jamendoTracks.isEmpty()) {
-                        Log.d("SearchActivity", "✅ Search success: " + jamendoTracks.size() + " results");
-                        List<Track> tracks = new ArrayList<>();
-                        for (JamendoApi.JamendoTrack jTrack : jamendoTracks) {
-                            if (jTrack.audio != null && !jTrack.audio.isEmpty()) {
-                                Track track = jTrack.toTrack();
-                                if (track.getStreamUri() != null) {
-                                    tracks.add(track);
-                                }
-                            }
-                        }
-                        apiCache.put("search_" + query, tracks);
-                        processSearchResults(tracks, query);
-                    } else {
-                        showNoResults();
-                    }
+                remoteResults.addAll(page);
+                if (firstPage) {
+                    Log.d("SearchActivity", "✅ Search success: " + page.size() + " results");
+                    FeedCacheManager.getInstance().saveFeed(FeedCacheManager.searchKey(pageQuery), page);
+                }
+
+                List<Track> merged = mergeResults(localResults, remoteResults);
+                if (!merged.isEmpty()) {
+                    processSearchResults(merged, pageQuery);
                 } else {
-                    showSearchError();
+                    showNoResults();
                 }
             }
 
             @Override
-            public void onFailure(Call<JamendoApi.JamendoResponse> call, Throwable t) {
+            public void onPageFailed(String pageQuery, boolean firstPage, String error) {
+                if (sequence != searchSequence) return;
                 showLoading(false);
+                Log.e("SearchActivity", "Search page failed: " + error);
+                if (firstPage) {
+                    showPersistedSearch(pageQuery, sequence);
+                } else {
+                    nextPageRetryAt = SystemClock.uptimeMillis() + PAGE_RETRY_DELAY_MS;
+                }
+            }
+        });
+    }
+
+    // Dòng cuối đang thấy còn cách bài cuối của kết quả không quá PREFETCH_DISTANCE dòng thì nạp trang sau
+    private void maybeLoadNextPage() {
+        if (currentQuery.isEmpty() || !searchLoader.hasMore() || searchLoader.isLoading()) return;
+        if (searchResults.isEmpty()) return;
+        if (SystemClock.uptimeMillis() < nextPageRetryAt) return;
+
+        int lastVisible = searchLayoutManager.findLastVisibleItemPosition();
+        int lastResult = RESULTS_START_POSITION + searchResultsAdapter.getItemCount() - 1;
+        if (lastVisible != RecyclerView.NO_POSITION && lastVisible >= lastResult - PREFETCH_DISTANCE) {
+            searchLoader.loadNextPage();
+        }
+    }
+
+    // Mạng lỗi: dùng kết quả lần trước đã lưu cho từ khóa này, vẫn giữ kết quả trên máy nếu có
+    private void showPersistedSearch(String query, long sequence) {
+        FeedCacheManager.getInstance().getFeed(FeedCacheManager.searchKey(query), (tracks, fetchedAt) -> {
+            if (sequence != searchSequence || isFinishing()) return;
+            if (tracks != null && !tracks.isEmpty()) {
+                Log.d("SearchActivity", "Offline, showing saved results: " + query);
+                remoteResults = new ArrayList<>(tracks);
+                processSearchResults(mergeResults(localResults, remoteResults), query);
+            } else if (localResults.isEmpty()) {
                 showSearchError();
             }
         });
     }
 
+    // Kết quả trên máy đứng trước, bỏ các bài mạng trùng id
+    private List<Track> mergeResults(List<Track> local, List<Track> remote) {
+        List<Track> merged = new ArrayList<>(local);
+        Set<String> ids = new HashSet<>();
+        for (Track track : local) {
+            ids.add(track.getId());
+        }
+        for (Track track : remote) {
+            if (ids.add(track.getId())) {
+                merged.add(track);
+            }
+        }
+        return merged;
+    }
+
     private void processSearchResults(List<Track> tracks, String query) {
         searchResults.clear();
         searchResults.addAll(tracks);
-        searchResultsAdapter.updateTracks(searchResults);
-        tvSearchResultsTitle.setVisibility(tracks.isEmpty() ? View.GONE : View.VISIBLE);
-        recyclerViewSearchResults.setVisibility(tracks.isEmpty() ? View.GONE : View.VISIBLE);
+        // DiffUtil: trang mới chỉ chèn thêm dòng, không bind lại các dòng đang hiển thị
+        searchResultsAdapter.submitTracks(searchResults);
+        showResultsTitle(!tracks.isEmpty());
         tvEmptyState.setVisibility(tracks.isEmpty() ? View.VISIBLE : View.GONE);
         if (!tracks.isEmpty()) {
-            tvSearchResultsTitle.setText("Kết quả tìm kiếm cho \"" + query + "\" (" + tracks.size() + ")");
-            loadRelatedGenreSuggestions(query);
+            String count = tracks.size() + (searchLoader.hasMore() ? "+" : "");
+            tvSearchResultsTitle.setText("Kết quả tìm kiếm cho \"" + query + "\" (" + count + ")");
+            // Đề xuất thể loại chỉ nạp 1 lần cho mỗi truy vấn, không nạp lại theo từng trang
+            if (!query.equals(genresLoadedFor)) {
+                genresLoadedFor = query;
+                loadRelatedGenreSuggestions(query);
+            }
         } else {
             tvEmptyState.setText("Không tìm thấy kết quả nào");
         }
@@ -290,14 +382,18 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
                             }
                         }
                         apiCache.put("genre_" + relatedGenre, tracks);
+                        FeedCacheManager.getInstance().saveFeed(FeedCacheManager.genreKey(relatedGenre), tracks);
                         processGenreSuggestions(tracks, relatedGenre);
                     }
+                } else {
+                    showPersistedGenre(relatedGenre, relatedGenre, false);
                 }
             }
 
             @Override
             public void onFailure(Call<JamendoApi.JamendoResponse> call, Throwable t) {
                 Log.e("SearchActivity", "Genre suggestions failed: " + t.getMessage());
+                showPersistedGenre(relatedGenre, relatedGenre, false);
             }
         });
     }
@@ -329,6 +425,9 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
             return;
         }
 
+        // Hiện ngay đề xuất đã lưu trong lúc chờ mạng
+        showPersistedGenre(popularGenre, "phổ biến", true);
+
         JamendoApi api = com.example.musicbanger.api.MusicApiService.getJamendoApi();
         String clientId = "06ac505c";
 
@@ -354,6 +453,7 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
                             }
                         }
                         apiCache.put("genre_" + popularGenre, tracks);
+                        FeedCacheManager.getInstance().saveFeed(FeedCacheManager.genreKey(popularGenre), tracks);
                         processGenreSuggestions(tracks, "phổ biến");
                     }
                 }
@@ -366,24 +466,44 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
         });
     }
 
+    // onlyIfEmpty: chỉ điền khi chưa có đề xuất nào (response mạng về trước thì bỏ qua bản đã lưu)
+    private void showPersistedGenre(String genre, String title, boolean onlyIfEmpty) {
+        FeedCacheManager.getInstance().getFeed(FeedCacheManager.genreKey(genre), (tracks, fetchedAt) -> {
+            if (isFinishing() || tracks == null || tracks.isEmpty()) return;
+            if (onlyIfEmpty && !genreSuggestions.isEmpty()) return;
+            processGenreSuggestions(tracks, title);
+        });
+    }
+
     private void processGenreSuggestions(List<Track> tracks, String genre) {
         genreSuggestions.clear();
         genreSuggestions.addAll(tracks);
         genreSuggestionsAdapter.updateTracks(genreSuggestions);
-        TextView tvGenreTitle = findViewById(R.id.tvGenreSuggestionsTitle);
-        tvGenreTitle.setText("Đề xuất " + genre + " khác");
+        tvGenreSuggestionsTitle.setText("Đề xuất " + genre + " khác");
     }
 
     private void clearSearchResults() {
+        currentQuery = "";
+        searchSequence++;
+        genresLoadedFor = null;
+        searchHandler.removeCallbacks(pendingSearch);
+        searchLoader.reset();
+        remoteResults = new ArrayList<>();
         searchResults.clear();
-        searchResultsAdapter.updateTracks(searchResults);
-        tvSearchResultsTitle.setVisibility(View.GONE);
-        recyclerViewSearchResults.setVisibility(View.GONE);
+        searchResultsAdapter.submitTracks(searchResults);
+        showResultsTitle(false);
         tvEmptyState.setVisibility(View.VISIBLE);
         tvEmptyState.setText("Nhập từ khóa để tìm kiếm bài hát");
         loadGenreSuggestions();
     }
 
+    // Ẩn / hiện tiêu đề kết quả; khối gợi ý cách bài cuối 24dp khi có kết quả
+    private void showResultsTitle(boolean show) {
+        tvSearchResultsTitle.setVisibility(show ? View.VISIBLE : View.GONE);
+        int gap = searchResults.isEmpty() ? 0 : Math.round(24 * getResources().getDisplayMetrics().density);
+        searchSuggestionsSection.setPadding(0, gap, 0, 0);
+    }
+
     private void showLoading(boolean show) {
         loadingProgress.setVisibility(show ? View.VISIBLE : View.GONE);
     }
@@ -393,8 +513,9 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
     }
 
     private void showNoResults() {
-        tvSearchResultsTitle.setVisibility(View.VISIBLE);
-        recyclerViewSearchResults.setVisibility(View.GONE);
+        searchResults.clear();
+        searchResultsAdapter.submitTracks(searchResults);
+        showResultsTitle(true);
         tvEmptyState.setVisibility(View.VISIBLE);
         tvEmptyState.setText("Không tìm thấy kết quả nào");
         tvSearchResultsTitle.setText("Kết quả tìm kiếm");
@@ -518,8 +639,9 @@ public class SearchActivity extends AppCompatActivity implements SongAdapter.OnS
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (searchTimer != null) {
-            searchTimer.cancel();
+        searchHandler.removeCallbacks(pendingSearch);
+        if (searchLoader != null) {
+            searchLoader.cancel();
         }
     }
 }
\ No newline at end of file
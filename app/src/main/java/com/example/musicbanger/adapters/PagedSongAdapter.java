@@ -0,0 +1,85 @@
+package com.example.musicbanger.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+
+import com.example.musicbanger.R;
+import com.example.musicbanger.model.Track;
+
+/**
+ * Biến thể của SongAdapter cho danh sách lớn: nhận PagingData từ Room thay vì cả List.
+ * Dùng lại SongViewHolder và menu của SongAdapter.
+ */
+public class PagedSongAdapter extends PagingDataAdapter<Track, SongAdapter.SongViewHolder> {
+
+    private final SongAdapter.OnSongClickListener listener;
+    private SongAdapter.OnSongMenuClickListener menuClickListener;
+    private boolean showRemoveOption = false;
+
+    public PagedSongAdapter(SongAdapter.OnSongClickListener listener) {
+        super(SongAdapter.TRACK_DIFF);
+        this.listener = listener;
+    }
+
+    public void setShowRemoveOption(boolean showRemoveOption) {
+        this.showRemoveOption = showRemoveOption;
+    }
+
+    public void setOnSongMenuClickListener(SongAdapter.OnSongMenuClickListener listener) {
+        this.menuClickListener = listener;
+    }
+
+    @NonNull
+    @Override
+    public SongAdapter.SongViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_song_suggestion, parent, false);
+        return new SongAdapter.SongViewHolder(view, false);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SongAdapter.SongViewHolder holder, int position) {
+        Track track = getItem(position);
+        if (track == null) {
+            holder.bindPlaceholder();
+            holder.itemView.setOnClickListener(null);
+            holder.itemView.setOnLongClickListener(null);
+            if (holder.getMoreButton() != null) {
+                holder.getMoreButton().setOnClickListener(null);
+            }
+            return;
+        }
+
+        holder.bind(track);
+
+        if (holder.getMoreButton() != null) {
+            holder.getMoreButton().setOnClickListener(v ->
+                    SongAdapter.showSongMenu(holder.itemView.getContext(), track, holder.getMoreButton(),
+                            showRemoveOption, menuClickListener));
+        }
+
+        holder.itemView.setOnClickListener(v -> {
+            if (listener != null) {
+                listener.onSongClick(holder.getBindingAdapterPosition(), false);
+            }
+        });
+
+        holder.itemView.setOnLongClickListener(v -> {
+            if (listener != null) {
+                listener.onSongLongClick(holder.getBindingAdapterPosition(), false);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    // Lấy bài hát tại vị trí mà không kích hoạt nạp thêm trang
+    public Track getTrackAt(int position) {
+        if (position < 0 || position >= getItemCount()) return null;
+        return peek(position);
+    }
+}
@@ -6,17 +6,20 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.core.widget.ImageViewCompat;
 import androidx.recyclerview.widget.RecyclerView;
+import com.bumptech.glide.Glide;
 import com.example.musicbanger.R;
-import com.example.musicbanger.model.Playlist;
+import com.example.musicbanger.model.PlaylistSummary;
 import java.util.List;
 
 public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.PlaylistViewHolder> {
 
-    private List<Playlist> playlists;
+    private List<PlaylistSummary> playlists;
     private OnPlaylistClickListener listener;
 
-    public PlaylistAdapter(List<Playlist> playlists, OnPlaylistClickListener listener) {
+    public PlaylistAdapter(List<PlaylistSummary> playlists, OnPlaylistClickListener listener) {
         this.playlists = playlists;
         this.listener = listener;
     }
@@ -31,7 +34,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
 
     @Override
     public void onBindViewHolder(@NonNull PlaylistViewHolder holder, int position) {
-        Playlist playlist = playlists.get(position);
+        PlaylistSummary playlist = playlists.get(position);
         holder.bind(playlist);
     }
 
@@ -40,7 +43,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         return playlists.size();
     }
 
-    public void updatePlaylists(List<Playlist> newPlaylists) {
+    public void updatePlaylists(List<PlaylistSummary> newPlaylists) {
         this.playlists = newPlaylists;
         notifyDataSetChanged();
     }
@@ -50,6 +53,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         private TextView tvTrackCount;
         private TextView tvPlaylistDescription;
         private ImageView ivPlaylistArt;
+        private final int iconPadding;
 
         public PlaylistViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -57,6 +61,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
             tvTrackCount = itemView.findViewById(R.id.tvTrackCount);
             tvPlaylistDescription = itemView.findViewById(R.id.tvPlaylistDescription);
             ivPlaylistArt = itemView.findViewById(R.id.ivPlaylistArt);
+            iconPadding = ivPlaylistArt.getPaddingLeft();
 
             itemView.setOnClickListener(v -> {
                 if (listener != null) {
@@ -79,24 +84,42 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
             });
         }
 
-        public void bind(Playlist playlist) {
+        public void bind(PlaylistSummary playlist) {
             tvPlaylistName.setText(playlist.getName());
             tvTrackCount.setText(playlist.getTrackCount() + " bài hát");
             tvPlaylistDescription.setText(playlist.getDescription());
 
+            Glide.with(itemView.getContext()).clear(ivPlaylistArt);
+
             // Set icon khác nhau cho playlist mặc định
             if (playlist.getName().equals("Bài hát yêu thích")) {
-                ivPlaylistArt.setImageResource(R.drawable.ic_favorite);
+                showIcon(R.drawable.ic_favorite);
             } else if (playlist.getName().equals("Nghe gần đây")) {
-                ivPlaylistArt.setImageResource(R.drawable.ic_history);
+                showIcon(R.drawable.ic_history);
+            } else if (playlist.getCoverUrl() != null) {
+                // Playlist của người dùng: dùng ảnh bài đầu tiên làm ảnh bìa
+                ImageViewCompat.setImageTintList(ivPlaylistArt, null);
+                ivPlaylistArt.setPadding(0, 0, 0, 0);
+                Glide.with(itemView.getContext())
+                        .load(playlist.getCoverUrl())
+                        .placeholder(R.drawable.ic_playlist)
+                        .error(R.drawable.ic_playlist)
+                        .into(ivPlaylistArt);
             } else {
-                ivPlaylistArt.setImageResource(R.drawable.ic_playlist);
+                showIcon(R.drawable.ic_playlist);
             }
         }
+
+        private void showIcon(int iconRes) {
+            ImageViewCompat.setImageTintList(ivPlaylistArt,
+                    ContextCompat.getColorStateList(itemView.getContext(), R.color.primary_color));
+            ivPlaylistArt.setPadding(iconPadding, iconPadding, iconPadding, iconPadding);
+            ivPlaylistArt.setImageResource(iconRes);
+        }
     }
 
     public interface OnPlaylistClickListener {
-        void onPlaylistClick(Playlist playlist);
-        void onPlaylistLongClick(Playlist playlist);
+        void onPlaylistClick(PlaylistSummary playlist);
+        void onPlaylistLongClick(PlaylistSummary playlist);
     }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package com.example.musicbanger.adapters;
 
-import android.app.Activity;
 import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
@@ -11,18 +10,35 @@ import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.musicbanger.R;
+import com.example.musicbanger.manager.ArtworkManager;
 import com.example.musicbanger.manager.UserPlaylistManager;
 import com.example.musicbanger.model.Track;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder> {
 
+    // So sánh bài hát cho DiffUtil, dùng chung với PagedSongAdapter
+    static final DiffUtil.ItemCallback<Track> TRACK_DIFF = new DiffUtil.ItemCallback<Track>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Track oldItem, @NonNull Track newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getArtistName(), newItem.getArtistName())
+                    && Objects.equals(oldItem.getArtworkUrl(), newItem.getArtworkUrl());
+        }
+    };
+
     private List<Track> tracks;
     private final OnSongClickListener listener;
     private final boolean isHorizontal;
@@ -63,28 +79,32 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
         // Xử lý click menu (nút 3 chấm) - CHỈ cho layout vertical
         if (holder.ivMore != null) {
             holder.ivMore.setOnClickListener(v -> {
-                showSongMenu(holder.itemView.getContext(), track, position, holder.ivMore);
+                showSongMenu(holder.itemView.getContext(), track, holder.ivMore,
+                        showRemoveOption, menuClickListener);
             });
         }
 
         // Click vào item để phát nhạc
+        // Lấy vị trí lúc click: danh sách cập nhật bằng DiffUtil có thể dời vị trí mà không bind lại
         holder.itemView.setOnClickListener(v -> {
             if (listener != null) {
-                listener.onSongClick(position, isHorizontal);
+                listener.onSongClick(holder.getBindingAdapterPosition(), isHorizontal);
             }
         });
 
         // Long click
         holder.itemView.setOnLongClickListener(v -> {
             if (listener != null) {
-                listener.onSongLongClick(position, isHorizontal);
+                listener.onSongLongClick(holder.getBindingAdapterPosition(), isHorizontal);
                 return true;
             }
             return false;
         });
     }
 
-    private void showSongMenu(Context context, Track track, int position, View anchorView) {
+    // Dùng chung cho SongAdapter và PagedSongAdapter
+    static void showSongMenu(Context context, Track track, View anchorView,
+                             boolean showRemoveOption, OnSongMenuClickListener menuClickListener) {
         PopupMenu popupMenu = new PopupMenu(context, anchorView);
         popupMenu.inflate(R.menu.song_context_menu);
 
@@ -102,21 +122,14 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
         // Cập nhật trạng thái yêu thích
         MenuItem favoriteItem = popupMenu.getMenu().findItem(R.id.menu_favorite);
 
-        // KIỂM TRA YÊU THÍCH BẰNG CALLBACK ĐỂ TRÁNH BLOCK UI
-        UserPlaylistManager.getInstance().isFavorite(track, new UserPlaylistManager.FavoriteCallback() {
-            @Override
-            public void onFavoriteChecked(boolean isFavorite) {
-                ((Activity) context).runOnUiThread(() -> {
-                    if (isFavorite) {
-                        favoriteItem.setTitle("Bỏ yêu thích");
-                        favoriteItem.setIcon(R.drawable.ic_favorite);
-                    } else {
-                        favoriteItem.setTitle("Yêu thích");
-                        favoriteItem.setIcon(R.drawable.ic_favorite);
-                    }
-                });
-            }
-        });
+        // Tra trong bộ nhớ đệm yêu thích, không truy vấn DB
+        if (UserPlaylistManager.getInstance().isFavorite(track)) {
+            favoriteItem.setTitle("Bỏ yêu thích");
+            favoriteItem.setIcon(R.drawable.ic_favorite);
+        } else {
+            favoriteItem.setTitle("Yêu thích");
+            favoriteItem.setIcon(R.drawable.ic_favorite);
+        }
 
         popupMenu.setOnMenuItemClickListener(item -> {
             int id = item.getItemId();
@@ -164,6 +177,36 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
         notifyDataSetChanged();
     }
 
+    // Cập nhật theo DiffUtil (vd. nối thêm trang kết quả): chỉ các dòng mới / đổi được bind lại.
+    // Adapter giữ bản sao riêng, nên bên gọi được sửa list của mình sau đó.
+    public void submitTracks(List<Track> newTracks) {
+        List<Track> oldTracks = tracks;
+        List<Track> updated = newTracks != null ? new ArrayList<>(newTracks) : new ArrayList<>();
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldTracks.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return updated.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return TRACK_DIFF.areItemsTheSame(oldTracks.get(oldPosition), updated.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return TRACK_DIFF.areContentsTheSame(oldTracks.get(oldPosition), updated.get(newPosition));
+            }
+        });
+        this.tracks = updated;
+        diff.dispatchUpdatesTo(this);
+    }
+
     public static class SongViewHolder extends RecyclerView.ViewHolder {
         private final TextView tvSongTitle;
         private final TextView tvArtistName;
@@ -194,6 +237,18 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
             }
         }
 
+        ImageView getMoreButton() {
+            return ivMore;
+        }
+
+        // Dòng chưa được nạp (placeholder của Paging)
+        public void bindPlaceholder() {
+            if (tvSongTitle != null) tvSongTitle.setText("");
+            if (tvArtistName != null) tvArtistName.setText("");
+            if (tvAlbumName != null) tvAlbumName.setText("");
+            if (ivAlbumArt != null) ivAlbumArt.setImageResource(R.drawable.ic_music_note);
+        }
+
         public void bind(Track track) {
             if (isHorizontalLayout) {
                 // Bind cho layout horizontal
@@ -218,14 +273,8 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
             }
 
             // Load ảnh album art (chung cho cả 2 layout)
-            if (ivAlbumArt != null && track.getArtworkUri() != null) {
-                Glide.with(itemView.getContext())
-                        .load(track.getArtworkUri())
-                        .placeholder(R.drawable.ic_music_note)
-                        .error(R.drawable.ic_music_note)
-                        .into(ivAlbumArt);
-            } else if (ivAlbumArt != null) {
-                ivAlbumArt.setImageResource(R.drawable.ic_music_note);
+            if (ivAlbumArt != null) {
+                ArtworkManager.getInstance().loadInto(ivAlbumArt, track, ArtworkManager.Size.THUMB);
             }
         }
     }
@@ -0,0 +1,40 @@
+package com.example.musicbanger.adapters;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Adapter 1 dòng bọc 1 View đã inflate sẵn (tiêu đề, khối gợi ý, trạng thái...),
+ * dùng trong ConcatAdapter để các khối tĩnh cuộn chung 1 RecyclerView với danh sách bài hát.
+ * Màn hình giữ tham chiếu tới View và tự cập nhật nội dung, adapter không bind gì.
+ */
+public class StaticViewAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    private final View view;
+
+    public StaticViewAdapter(View view) {
+        this.view = view;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        // Holder cũ bị bỏ (vd. pool đầy) thì View có thể vẫn còn gắn với cha cũ
+        if (view.getParent() instanceof ViewGroup) {
+            ((ViewGroup) view.getParent()).removeView(view);
+        }
+        return new RecyclerView.ViewHolder(view) {};
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override
+    public int getItemCount() {
+        return 1;
+    }
+}
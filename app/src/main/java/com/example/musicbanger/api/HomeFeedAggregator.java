@@ -0,0 +1,164 @@
+package com.example.musicbanger.api;
+
+import android.util.Log;
+import com.example.musicbanger.model.Track;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Tải feed trang chủ: gửi đồng thời 3 truy vấn (phổ biến, thể loại, mới nhất) thay vì
+ * chờ từng truy vấn lỗi rồi mới gọi truy vấn sau. Mỗi truy vấn có deadline riêng nên
+ * trường hợp xấu nhất chỉ mất 1 lần timeout.
+ * Kết quả lấy theo thứ tự ưu tiên: nguồn tốt đầu tiên mà mọi nguồn ưu tiên hơn đã xong
+ * (lỗi / rỗng), ghép thêm các nguồn khác đã về (bỏ trùng id), rồi hủy các truy vấn còn lại.
+ * Callback của Retrofit chạy trên main thread nên trạng thái không cần khóa.
+ */
+public class HomeFeedAggregator {
+    private static final String TAG = "HomeFeedAggregator";
+
+    // Deadline cho cả 1 truy vấn (kết nối + đọc), ngắn hơn timeout 30s của client
+    private static final long REQUEST_DEADLINE_SECONDS = 8;
+    private static final int MAX_TRACKS = 20;
+
+    // Theo thứ tự ưu tiên
+    public enum Source { POPULAR, GENRE, LATEST }
+
+    public interface FeedCallback {
+        void onFeedLoaded(List<Track> tracks);
+        void onFeedFailed(String error);
+
+        // Mỗi nguồn trả về kết quả hợp lệ (kể cả sau khi feed đã giao)
+        default void onSourceLoaded(Source source, List<Track> tracks) {}
+    }
+
+    private final JamendoApi api;
+    private final List<Call<JamendoApi.JamendoResponse>> calls = new ArrayList<>();
+    private final List<List<Track>> results = new ArrayList<>();
+    private final boolean[] done = new boolean[Source.values().length];
+    private FeedCallback callback;
+    private String lastError;
+    private boolean delivered;
+
+    public HomeFeedAggregator(JamendoApi api) {
+        this.api = api;
+        for (int i = 0; i < Source.values().length; i++) {
+            results.add(null);
+        }
+    }
+
+    // Gọi 1 lần cho mỗi aggregator
+    public void load(String genre, FeedCallback callback) {
+        this.callback = callback;
+        String clientId = JamendoApi.CLIENT_ID;
+        enqueue(Source.POPULAR, api.getPopularTracks(clientId, "json", 15, "popularity_total"));
+        enqueue(Source.GENRE, api.getTracksByGenre(clientId, "json", 12, genre));
+        enqueue(Source.LATEST, api.getPopularTracks(clientId, "json", 12, "releasedate_desc"));
+    }
+
+    // Hủy các truy vấn còn chạy, không gọi callback nữa (vd. Activity bị hủy)
+    public void cancel() {
+        delivered = true;
+        callback = null;
+        cancelPending();
+    }
+
+    private void enqueue(Source source, Call<JamendoApi.JamendoResponse> call) {
+        call.timeout().timeout(REQUEST_DEADLINE_SECONDS, TimeUnit.SECONDS);
+        calls.add(call);
+        call.enqueue(new Callback<JamendoApi.JamendoResponse>() {
+            @Override
+            public void onResponse(Call<JamendoApi.JamendoResponse> call,
+                                   Response<JamendoApi.JamendoResponse> response) {
+                List<Track> tracks = null;
+                if (response.isSuccessful() && response.body() != null) {
+                    tracks = toTracks(response.body().results);
+                    if (tracks.isEmpty()) {
+                        lastError = "No tracks found";
+                    }
+                } else {
+                    lastError = "API error: " + response.code();
+                }
+                onSourceDone(source, tracks);
+            }
+
+            @Override
+            public void onFailure(Call<JamendoApi.JamendoResponse> call, Throwable t) {
+                if (!call.isCanceled()) {
+                    Log.e(TAG, source + " failed: " + t.getMessage());
+                    lastError = "API failure: " + t.getMessage();
+                }
+                onSourceDone(source, null);
+            }
+        });
+    }
+
+    private void onSourceDone(Source source, List<Track> tracks) {
+        int index = source.ordinal();
+        done[index] = true;
+        if (tracks != null && !tracks.isEmpty()) {
+            results.set(index, tracks);
+            if (callback != null) {
+                callback.onSourceLoaded(source, tracks);
+            }
+        }
+        if (delivered) return;
+
+        // Nguồn tốt đầu tiên theo thứ tự ưu tiên; dừng lại nếu gặp nguồn ưu tiên hơn còn đang chờ
+        for (int i = 0; i < done.length; i++) {
+            if (!done[i]) return;
+            if (results.get(i) != null) {
+                deliver(i);
+                return;
+            }
+        }
+
+        delivered = true;
+        callback.onFeedFailed(lastError != null ? lastError : "No valid tracks found");
+    }
+
+    private void deliver(int primary) {
+        delivered = true;
+        cancelPending();
+
+        List<Track> merged = new ArrayList<>(results.get(primary));
+        Set<String> ids = new HashSet<>();
+        for (Track track : merged) {
+            ids.add(track.getId());
+        }
+        for (int i = 0; i < results.size() && merged.size() < MAX_TRACKS; i++) {
+            List<Track> other = results.get(i);
+            if (i == primary || other == null) continue;
+            for (Track track : other) {
+                if (merged.size() >= MAX_TRACKS) break;
+                if (ids.add(track.getId())) {
+                    merged.add(track);
+                }
+            }
+        }
+        Log.d(TAG, "Home feed from " + Source.values()[primary] + ": " + merged.size() + " tracks");
+        callback.onFeedLoaded(merged);
+    }
+
+    private void cancelPending() {
+        for (Call<JamendoApi.JamendoResponse> call : calls) {
+            call.cancel(); // Truy vấn đã xong thì cancel không có tác dụng
+        }
+    }
+
+    private static List<Track> toTracks(List<JamendoApi.JamendoTrack> jamendoTracks) {
+        List<Track> tracks = new ArrayList<>();
+        if (jamendoTracks == null) return tracks;
+        for (JamendoApi.JamendoTrack jamendoTrack : jamendoTracks) {
+            if (jamendoTrack.audio != null && !jamendoTrack.audio.isEmpty()) {
+                tracks.add(jamendoTrack.toTrack());
+            }
+        }
+        return tracks;
+    }
+}
@@ -20,12 +20,13 @@ public interface JamendoApi {
             @Query("order") String order
     );
 
-    // Tìm kiếm bài hát
+    // Tìm kiếm bài hát theo trang: offset = số kết quả bỏ qua (0 cho trang đầu)
     @GET("v3.0/tracks/")
     Call<JamendoResponse> searchTracks(
             @Query("client_id") String clientId,
             @Query("format") String format,
             @Query("limit") int limit,
+            @Query("offset") int offset,
             @Query("search") String query
     );
 
@@ -75,7 +76,8 @@ public interface JamendoApi {
                     album_name != null ? album_name : "Unknown Album",
                     audio, // SỬA: Dùng 'audio' thay vì 'preview'
                     image, // Album art
-                    duration // Duration in seconds
+                    duration, // Duration in seconds
+                    audiodownload
             );
         }
     }
@@ -1,46 +1,138 @@
 package com.example.musicbanger.api;
 
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
 import okhttp3.logging.HttpLoggingInterceptor;
 import java.io.File;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Tầng mạng dùng chung cho cả app: Retrofit (Jamendo API), Glide (ảnh bìa), ExoPlayer
+ * (stream nhạc) và DownloadManager cùng 1 connection pool / dispatcher, nên kết nối
+ * và phiên TLS tới Jamendo được dùng lại giữa các bên.
+ * Khởi tạo 1 lần trong MusicBangerApp trước các manager khác.
+ */
 public class MusicApiService {
     // Jamendo API Base URL
     private static final String JAMENDO_BASE_URL = "https://api.jamendo.com/";
 
-    private static Retrofit jamendoRetrofit = null;
+    private static final String HTTP_CACHE_DIR = "http_cache";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    // Jamendo trả no-cache: cho phép dùng lại response trong 60s, khi mất mạng chấp nhận bản cũ tới 7 ngày
+    private static final int API_MAX_AGE_SECONDS = 60;
+    private static final int OFFLINE_MAX_STALE_DAYS = 7;
 
-    public static Retrofit getJamendoClient() {
-        if (jamendoRetrofit == null) {
-            HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-            logging.setLevel(HttpLoggingInterceptor.Level.BODY); // Xem full response
-
-            // Thêm cache cho OkHttp (10MB)
-            File cacheDir = new File(System.getProperty("java.io.tmpdir"), "http_cache");
-            Cache cache = new Cache(cacheDir, 10 * 1024 * 1024);
-
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .cache(cache)
-                    .addInterceptor(logging)
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .build();
+    private static volatile OkHttpClient apiClient;
+    private static volatile OkHttpClient mediaClient;
+    private static volatile Retrofit jamendoRetrofit;
+    private static volatile JamendoApi jamendoApi;
 
-            jamendoRetrofit = new Retrofit.Builder()
-                    .baseUrl(JAMENDO_BASE_URL)
-                    .client(client)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
-        }
+    public static synchronized void initialize(Context context) {
+        if (apiClient != null) return;
+        Context appContext = context.getApplicationContext();
+
+        // Log chỉ bật ở bản debug, và chỉ dòng request / response: BODY chép cả response vào logcat
+        HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
+        boolean debuggable = (appContext.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        logging.setLevel(debuggable ? HttpLoggingInterceptor.Level.BASIC : HttpLoggingInterceptor.Level.NONE);
+
+        OkHttpClient base = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addInterceptor(logging)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+
+        // Cache HTTP chỉ cho API; nhạc và ảnh đã có cache trên đĩa riêng (SimpleCache, Glide)
+        OkHttpClient client = base.newBuilder()
+                .cache(new Cache(new File(appContext.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE))
+                .addInterceptor(offlineCacheInterceptor(appContext))
+                .addNetworkInterceptor(cacheControlInterceptor())
+                .build();
+        mediaClient = base;
+
+        jamendoRetrofit = new Retrofit.Builder()
+                .baseUrl(JAMENDO_BASE_URL)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+        jamendoApi = jamendoRetrofit.create(JamendoApi.class);
+        apiClient = client; // Gán cuối: checkInitialized() thấy apiClient thì các field khác đã sẵn sàng
+    }
+
+    public static Retrofit getJamendoClient() {
+        checkInitialized();
         return jamendoRetrofit;
     }
 
+    // Proxy Retrofit tạo 1 lần, dùng chung
     public static JamendoApi getJamendoApi() {
-        return getJamendoClient().create(JamendoApi.class);
+        checkInitialized();
+        return jamendoApi;
+    }
+
+    // Client cho tải nhạc / ảnh: chung pool với API nhưng không ghi vào cache HTTP
+    public static OkHttpClient getMediaClient() {
+        checkInitialized();
+        return mediaClient;
+    }
+
+    // Ghi đè Cache-Control của server để OkHttp được phép lưu response API
+    private static Interceptor cacheControlInterceptor() {
+        return chain -> {
+            Response response = chain.proceed(chain.request());
+            if (!response.isSuccessful()) return response;
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "public, max-age=" + API_MAX_AGE_SECONDS)
+                    .build();
+        };
+    }
+
+    // Mất mạng: chỉ đọc từ cache (kể cả bản cũ) thay vì chờ timeout
+    private static Interceptor offlineCacheInterceptor(Context context) {
+        CacheControl offline = new CacheControl.Builder()
+                .onlyIfCached()
+                .maxStale(OFFLINE_MAX_STALE_DAYS, TimeUnit.DAYS)
+                .build();
+        return chain -> {
+            Request request = chain.request();
+            if (!isOnline(context)) {
+                request = request.newBuilder().cacheControl(offline).build();
+            }
+            return chain.proceed(request);
+        };
+    }
+
+    private static boolean isOnline(Context context) {
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) return true;
+
+        NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    private static void checkInitialized() {
+        if (apiClient == null) {
+            throw new IllegalStateException("MusicApiService must be initialized first. Call initialize() in your Application class.");
+        }
     }
-}
\ No newline at end of file
+}
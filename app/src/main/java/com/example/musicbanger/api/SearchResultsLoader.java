@@ -0,0 +1,149 @@
+package com.example.musicbanger.api;
+
+import android.util.Log;
+import com.example.musicbanger.model.Track;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Nạp kết quả tìm kiếm Jamendo theo từng trang (limit / offset) thay vì 1 request lớn.
+ * Màn hình gọi loadNextPage() khi người dùng cuộn gần cuối danh sách; mỗi lúc chỉ có
+ * 1 request, trang trùng bài với trang trước (kết quả xê dịch giữa 2 lần gọi) được lọc bỏ.
+ * Truy vấn mới hủy Call cũ; mỗi request mang số thứ tự, response không khớp số hiện tại
+ * (đến trễ sau khi truy vấn đã đổi) bị bỏ. Truy vấn trùng với truy vấn đang chạy / đã có
+ * kết quả thì không gửi lại.
+ * Callback của Retrofit chạy trên main thread nên trạng thái không cần khóa.
+ */
+public class SearchResultsLoader {
+    private static final String TAG = "SearchResultsLoader";
+
+    public interface PageCallback {
+        // page: các bài mới của trang này (đã bỏ trùng), firstPage: trang đầu của truy vấn
+        void onPageLoaded(String query, List<Track> page, boolean firstPage, boolean hasMore);
+        void onPageFailed(String query, boolean firstPage, String error);
+    }
+
+    private final JamendoApi api;
+    private final int pageSize;
+    private final Set<String> seenIds = new HashSet<>();
+
+    private String query;
+    private PageCallback callback;
+    private Call<JamendoApi.JamendoResponse> inFlight;
+    private long sequence; // Tăng mỗi khi gửi request mới hoặc hủy
+    private int nextOffset;
+    private boolean hasMore;
+    private boolean firstPageLoaded;
+
+    public SearchResultsLoader(JamendoApi api, int pageSize) {
+        this.api = api;
+        this.pageSize = pageSize;
+    }
+
+    // Bắt đầu truy vấn mới: hủy request cũ và nạp trang đầu.
+    // Trả về false nếu đúng truy vấn này đang chạy hoặc đã có kết quả (không gửi lại)
+    public boolean start(String query, PageCallback callback) {
+        if (isCurrent(query)) {
+            this.callback = callback;
+            return false;
+        }
+        cancel();
+        this.query = query;
+        this.callback = callback;
+        this.nextOffset = 0;
+        this.hasMore = true;
+        this.firstPageLoaded = false;
+        seenIds.clear();
+        loadNextPage();
+        return true;
+    }
+
+    // Truy vấn đang chạy hoặc trang đầu đã về (trang đầu lỗi thì gửi lại được)
+    public boolean isCurrent(String query) {
+        return query != null && query.equals(this.query) && (inFlight != null || firstPageLoaded);
+    }
+
+    // Bỏ qua nếu đang nạp dở hoặc đã hết kết quả
+    public void loadNextPage() {
+        if (query == null || inFlight != null || !hasMore) return;
+
+        String pageQuery = query;
+        int offset = nextOffset;
+        boolean firstPage = offset == 0;
+        long requestSequence = ++sequence;
+        Call<JamendoApi.JamendoResponse> call =
+                api.searchTracks(JamendoApi.CLIENT_ID, "json", pageSize, offset, pageQuery);
+        inFlight = call;
+        Log.d(TAG, "Loading \"" + pageQuery + "\" offset " + offset);
+
+        call.enqueue(new Callback<JamendoApi.JamendoResponse>() {
+            @Override
+            public void onResponse(Call<JamendoApi.JamendoResponse> call,
+                                   Response<JamendoApi.JamendoResponse> response) {
+                if (requestSequence != sequence) return; // Đã có request mới hơn / đã hủy
+                inFlight = null;
+
+                if (!response.isSuccessful() || response.body() == null) {
+                    callback.onPageFailed(pageQuery, firstPage, "API error: " + response.code());
+                    return;
+                }
+
+                List<JamendoApi.JamendoTrack> results = response.body().results;
+                int received = results != null ? results.size() : 0;
+                nextOffset = offset + received;
+                hasMore = received >= pageSize;
+                firstPageLoaded = true;
+                callback.onPageLoaded(pageQuery, toNewTracks(results), firstPage, hasMore);
+            }
+
+            @Override
+            public void onFailure(Call<JamendoApi.JamendoResponse> call, Throwable t) {
+                if (requestSequence != sequence) return;
+                inFlight = null;
+                callback.onPageFailed(pageQuery, firstPage, "API failure: " + t.getMessage());
+            }
+        });
+    }
+
+    public void cancel() {
+        sequence++;
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    // Hủy và quên truy vấn hiện tại (vd. ô tìm kiếm bị xóa)
+    public void reset() {
+        cancel();
+        query = null;
+        hasMore = false;
+        firstPageLoaded = false;
+    }
+
+    public boolean isLoading() {
+        return inFlight != null;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    private List<Track> toNewTracks(List<JamendoApi.JamendoTrack> results) {
+        List<Track> tracks = new ArrayList<>();
+        if (results == null) return tracks;
+        for (JamendoApi.JamendoTrack jTrack : results) {
+            if (jTrack.audio == null || jTrack.audio.isEmpty()) continue;
+            Track track = jTrack.toTrack();
+            if (track.getStreamUri() != null && seenIds.add(track.getId())) {
+                tracks.add(track);
+            }
+        }
+        return tracks;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.musicbanger.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.example.musicbanger.database.converters.TrackCodec;
+import com.example.musicbanger.database.converters.TrackConverter;
+import com.example.musicbanger.database.converters.TrackListConverter;
+import com.example.musicbanger.database.dao.PlaylistDao;
+import com.example.musicbanger.model.Track;
+import java.util.Collections;
+import java.util.List;
+
+public final class DatabaseMigrations {
+
+    private DatabaseMigrations() {}
+
+    /**
+     * v1 -> v2: tách playlists.tracksJson thành bảng tracks + playlist_tracks.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `tracks` (`id` TEXT NOT NULL, `title` TEXT, " +
+                    "`artistName` TEXT, `albumName` TEXT, `streamUrl` TEXT, `artworkUrl` TEXT, " +
+                    "`duration` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `playlist_tracks` (`playlistId` TEXT NOT NULL, " +
+                    "`trackId` TEXT NOT NULL, `position` INTEGER NOT NULL, `addedAt` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`playlistId`, `trackId`), " +
+                    "FOREIGN KEY(`playlistId`) REFERENCES `playlists`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+                    "FOREIGN KEY(`trackId`) REFERENCES `tracks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_playlist_tracks_playlistId_position` " +
+                    "ON `playlist_tracks` (`playlistId`, `position`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_playlist_tracks_trackId` ON `playlist_tracks` (`trackId`)");
+
+            // Chuyển dữ liệu JSON cũ sang bảng mới
+            try (Cursor cursor = db.query("SELECT `id`, `tracksJson` FROM `playlists`")) {
+                while (cursor.moveToNext()) {
+                    String playlistId = cursor.getString(0);
+                    List<Track> tracks = TrackListConverter.fromLegacyJson(cursor.getString(1));
+
+                    // Bản cũ nối bài mới vào cuối danh sách "Nghe gần đây"; bảng mới giữ bài mới nhất ở đầu
+                    if ("recently_played_default".equals(playlistId)) {
+                        Collections.reverse(tracks);
+                    }
+
+                    long now = System.currentTimeMillis();
+                    for (int i = 0; i < tracks.size(); i++) {
+                        Track track = tracks.get(i);
+                        if (track == null || track.getId() == null) continue;
+
+                        ContentValues trackValues = new ContentValues();
+                        trackValues.put("id", track.getId());
+                        trackValues.put("title", track.getTitle());
+                        trackValues.put("artistName", track.getArtistName());
+                        trackValues.put("albumName", track.getAlbumName());
+                        trackValues.put("streamUrl", track.getStreamUrl());
+                        trackValues.put("artworkUrl", track.getArtworkUrl());
+                        trackValues.put("duration", track.getDuration());
+                        db.insert("tracks", SQLiteDatabase.CONFLICT_IGNORE, trackValues);
+
+                        ContentValues entryValues = new ContentValues();
+                        entryValues.put("playlistId", playlistId);
+                        entryValues.put("trackId", track.getId());
+                        entryValues.put("position", i * PlaylistDao.POSITION_GAP);
+                        entryValues.put("addedAt", now);
+                        db.insert("playlist_tracks", SQLiteDatabase.CONFLICT_IGNORE, entryValues);
+                    }
+                }
+            }
+
+            // Dựng lại bảng playlists không còn cột tracksJson
+            db.execSQL("CREATE TABLE IF NOT EXISTS `playlists_new` (`id` TEXT NOT NULL, `name` TEXT, " +
+                    "`description` TEXT, `createdAt` INTEGER NOT NULL, `isDefault` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            db.execSQL("INSERT INTO `playlists_new` (`id`, `name`, `description`, `createdAt`, `isDefault`) " +
+                    "SELECT `id`, `name`, `description`, `createdAt`, `isDefault` FROM `playlists`");
+            db.execSQL("DROP TABLE `playlists`");
+            db.execSQL("ALTER TABLE `playlists_new` RENAME TO `playlists`");
+        }
+    };
+
+    /**
+     * v2 -> v3: thêm trackCount / coverUrl vào playlists để màn hình thư viện không phải đọc bài hát.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `playlists` ADD COLUMN `trackCount` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `playlists` ADD COLUMN `coverUrl` TEXT");
+
+            // Tính giá trị ban đầu một lần, sau đó PlaylistDao cập nhật dần
+            db.execSQL("UPDATE `playlists` SET " +
+                    "`trackCount` = (SELECT COUNT(*) FROM `playlist_tracks` pt WHERE pt.`playlistId` = `playlists`.`id`), " +
+                    "`coverUrl` = (SELECT t.`artworkUrl` FROM `playlist_tracks` pt " +
+                    "INNER JOIN `tracks` t ON t.`id` = pt.`trackId` " +
+                    "WHERE pt.`playlistId` = `playlists`.`id` ORDER BY pt.`position` LIMIT 1)");
+        }
+    };
+
+    /**
+     * v3 -> v4: bảng play_history lưu từng lượt nghe.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `play_history` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`trackId` TEXT NOT NULL, `startedAt` INTEGER NOT NULL, `listenedMs` INTEGER NOT NULL, " +
+                    "`completed` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`trackId`) REFERENCES `tracks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_play_history_startedAt` ON `play_history` (`startedAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_play_history_trackId_startedAt` " +
+                    "ON `play_history` (`trackId`, `startedAt`)");
+        }
+    };
+
+    /**
+     * v4 -> v5: favorite_tracks.trackJson (Gson) -> trackData (TrackCodec nhị phân).
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `favorite_tracks_new` (`trackId` TEXT NOT NULL, " +
+                    "`trackData` BLOB, `addedAt` INTEGER NOT NULL, PRIMARY KEY(`trackId`))");
+
+            try (Cursor cursor = db.query("SELECT `trackId`, `trackJson`, `addedAt` FROM `favorite_tracks`")) {
+                while (cursor.moveToNext()) {
+                    Track track = null;
+                    try {
+                        track = TrackConverter.fromLegacyJson(cursor.getString(1));
+                    } catch (Exception e) {
+                        // JSON hỏng: vẫn giữ bài trong danh sách yêu thích, chỉ mất metadata
+                    }
+
+                    ContentValues values = new ContentValues();
+                    values.put("trackId", cursor.getString(0));
+                    values.put("trackData", track != null ? TrackCodec.encode(track) : null);
+                    values.put("addedAt", cursor.getLong(2));
+                    db.insert("favorite_tracks_new", SQLiteDatabase.CONFLICT_IGNORE, values);
+                }
+            }
+
+            db.execSQL("DROP TABLE `favorite_tracks`");
+            db.execSQL("ALTER TABLE `favorite_tracks_new` RENAME TO `favorite_tracks`");
+        }
+    };
+
+    /**
+     * v5 -> v6: chỉ mục FTS4 tracks_fts (external content trên tracks) cho tìm kiếm trong thư viện.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `tracks_fts` USING FTS4(`title` TEXT, " +
+                    "`artistName` TEXT, `albumName` TEXT, tokenize=unicode61, content=`tracks`)");
+
+            // Cùng trigger Room tạo cho @Fts4(contentEntity = ...) để chỉ mục tự cập nhật theo từng dòng
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tracks_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `tracks` BEGIN DELETE FROM `tracks_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tracks_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `tracks` BEGIN DELETE FROM `tracks_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tracks_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `tracks` BEGIN INSERT INTO `tracks_fts`(`docid`, `title`, `artistName`, `albumName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artistName`, NEW.`albumName`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_tracks_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `tracks` BEGIN INSERT INTO `tracks_fts`(`docid`, `title`, `artistName`, `albumName`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artistName`, NEW.`albumName`); END");
+
+            // Dọn các bài không còn thuộc playlist nào rồi dựng chỉ mục cho dữ liệu hiện có
+            db.execSQL("DELETE FROM `tracks` WHERE `id` NOT IN (SELECT `trackId` FROM `playlist_tracks`) " +
+                    "AND `id` NOT IN (SELECT `trackId` FROM `play_history`)");
+            db.execSQL("INSERT INTO `tracks_fts`(`tracks_fts`) VALUES('rebuild')");
+        }
+    };
+
+    /**
+     * v6 -> v7: tải nhạc offline (bảng downloads), tracks.downloadUrl và playlists.offline.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `tracks` ADD COLUMN `downloadUrl` TEXT");
+            db.execSQL("ALTER TABLE `playlists` ADD COLUMN `offline` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `downloads` (`trackId` TEXT NOT NULL, `url` TEXT, " +
+                    "`filePath` TEXT, `status` INTEGER NOT NULL, `bytesDownloaded` INTEGER NOT NULL, " +
+                    "`totalBytes` INTEGER NOT NULL, `attempts` INTEGER NOT NULL, `createdAt` INTEGER NOT NULL, " +
+                    "`updatedAt` INTEGER NOT NULL, PRIMARY KEY(`trackId`), " +
+                    "FOREIGN KEY(`trackId`) REFERENCES `tracks`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_downloads_status_createdAt` " +
+                    "ON `downloads` (`status`, `createdAt`)");
+        }
+    };
+
+    /**
+     * v7 -> v8: cache màu Palette theo ảnh bìa (bảng artwork_colors).
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `artwork_colors` (`artworkUrl` TEXT NOT NULL, " +
+                    "`dominant` INTEGER NOT NULL, `vibrant` INTEGER NOT NULL, `muted` INTEGER NOT NULL, " +
+                    "`updatedAt` INTEGER NOT NULL, PRIMARY KEY(`artworkUrl`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_artwork_colors_updatedAt` " +
+                    "ON `artwork_colors` (`updatedAt`)");
+        }
+    };
+
+    /**
+     * v8 -> v9: lưu response Jamendo gần nhất (bảng feed_cache) để hiển thị offline-first.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `feed_cache` (`cacheKey` TEXT NOT NULL, " +
+                    "`tracksData` BLOB, `fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`cacheKey`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_feed_cache_fetchedAt` " +
+                    "ON `feed_cache` (`fetchedAt`)");
+        }
+    };
+}
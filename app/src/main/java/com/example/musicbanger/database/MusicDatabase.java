@@ -4,22 +4,47 @@ import android.content.Context;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import com.example.musicbanger.database.dao.ArtworkColorDao;
+import com.example.musicbanger.database.dao.DownloadDao;
 import com.example.musicbanger.database.dao.FavoriteDao;
+import com.example.musicbanger.database.dao.FeedCacheDao;
+import com.example.musicbanger.database.dao.PlayHistoryDao;
 import com.example.musicbanger.database.dao.PlaylistDao;
+import com.example.musicbanger.database.dao.TrackDao;
+import com.example.musicbanger.database.entities.ArtworkColorEntity;
+import com.example.musicbanger.database.entities.DownloadEntity;
 import com.example.musicbanger.database.entities.FavoriteTrackEntity;
+import com.example.musicbanger.database.entities.FeedCacheEntity;
+import com.example.musicbanger.database.entities.PlayHistoryEntity;
 import com.example.musicbanger.database.entities.PlaylistEntity;
+import com.example.musicbanger.database.entities.PlaylistTrackEntity;
+import com.example.musicbanger.database.entities.TrackEntity;
+import com.example.musicbanger.database.entities.TrackFtsEntity;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Database(
-        entities = {PlaylistEntity.class, FavoriteTrackEntity.class},
-        version = 1,
+        entities = {PlaylistEntity.class, FavoriteTrackEntity.class, TrackEntity.class, PlaylistTrackEntity.class,
+                PlayHistoryEntity.class, TrackFtsEntity.class, DownloadEntity.class, ArtworkColorEntity.class,
+                FeedCacheEntity.class},
+        version = 9,
         exportSchema = false
 )
 public abstract class MusicDatabase extends RoomDatabase {
 
+    // Số luồng tối đa cho truy vấn DB: đủ để đọc song song mà không tạo luồng vô hạn
+    private static final int DATABASE_THREADS = 4;
+    private static final ExecutorService databaseExecutor = Executors.newFixedThreadPool(DATABASE_THREADS);
+
     private static MusicDatabase instance;
 
     public abstract PlaylistDao playlistDao();
     public abstract FavoriteDao favoriteDao();
+    public abstract PlayHistoryDao playHistoryDao();
+    public abstract TrackDao trackDao();
+    public abstract DownloadDao downloadDao();
+    public abstract ArtworkColorDao artworkColorDao();
+    public abstract FeedCacheDao feedCacheDao();
 
     public static synchronized MusicDatabase getInstance(Context context) {
         if (instance == null) {
@@ -27,8 +52,12 @@ public abstract class MusicDatabase extends RoomDatabase {
                             context.getApplicationContext(),
                             MusicDatabase.class,
                             "music_database"
-                    ).fallbackToDestructiveMigration()
-                    .allowMainThreadQueries()
+                    ).addMigrations(DatabaseMigrations.MIGRATION_1_2, DatabaseMigrations.MIGRATION_2_3,
+                            DatabaseMigrations.MIGRATION_3_4, DatabaseMigrations.MIGRATION_4_5,
+                            DatabaseMigrations.MIGRATION_5_6, DatabaseMigrations.MIGRATION_6_7,
+                            DatabaseMigrations.MIGRATION_7_8, DatabaseMigrations.MIGRATION_8_9)
+                    .fallbackToDestructiveMigration()
+                    .setQueryExecutor(databaseExecutor)
                     .build();
 
             // Tạo playlist mặc định
@@ -37,8 +66,13 @@ public abstract class MusicDatabase extends RoomDatabase {
         return instance;
     }
 
+    // Mọi truy vấn DB chạy trên executor này, không bao giờ trên main thread
+    public static ExecutorService getDatabaseExecutor() {
+        return databaseExecutor;
+    }
+
     private static void initializeDefaultData(MusicDatabase database) {
-        new Thread(() -> {
+        databaseExecutor.execute(() -> {
             android.util.Log.d("MusicDatabase", "Initializing default data...");
 
             // Tạo playlist "Bài hát yêu thích" nếu chưa có
@@ -70,6 +104,6 @@ public abstract class MusicDatabase extends RoomDatabase {
             }
 
             android.util.Log.d("MusicDatabase", "Default data initialization completed");
-        }).start();
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.example.musicbanger.database.converters;
+
+import com.example.musicbanger.model.Track;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mã hóa nhị phân gọn cho danh sách Track, thay cho Gson (phản chiếu, lặp lại tên field trong mỗi bản ghi).
+ *
+ * Định dạng (mọi số nguyên là varint không dấu):
+ * <pre>
+ *   version
+ *   số chuỗi, rồi từng chuỗi: độ dài byte + UTF-8
+ *   số track, rồi mỗi track: id, title, artist, album, streamUrl, artworkUrl, downloadUrl
+ *   (chỉ số chuỗi + 1, 0 = null), duration
+ * </pre>
+ * Version 1 không có downloadUrl; vẫn đọc được để không phải chuyển đổi dữ liệu cũ.
+ * Mỗi chuỗi chỉ được ghi 1 lần nên tên nghệ sĩ / album lặp lại chỉ tốn 1 byte chỉ số.
+ */
+public final class TrackCodec {
+    public static final int VERSION = 2;
+    private static final int FIELDS = 7;
+
+    private TrackCodec() {}
+
+    public static byte[] encode(Track track) {
+        List<Track> tracks = new ArrayList<>(1);
+        tracks.add(track);
+        return encodeList(tracks);
+    }
+
+    public static Track decode(byte[] data) {
+        List<Track> tracks = decodeList(data);
+        return tracks.isEmpty() ? null : tracks.get(0);
+    }
+
+    public static byte[] encodeList(List<Track> tracks) {
+        // Bảng chuỗi: mỗi chuỗi khác nhau được gán 1 chỉ số theo thứ tự xuất hiện
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] refs = new int[tracks.size() * FIELDS];
+
+        int r = 0;
+        for (Track track : tracks) {
+            refs[r++] = intern(track.getId(), indexes, strings);
+            refs[r++] = intern(track.getTitle(), indexes, strings);
+            refs[r++] = intern(track.getArtistName(), indexes, strings);
+            refs[r++] = intern(track.getAlbumName(), indexes, strings);
+            refs[r++] = intern(track.getStreamUrl(), indexes, strings);
+            refs[r++] = intern(track.getArtworkUrl(), indexes, strings);
+            refs[r++] = intern(track.getDownloadUrl(), indexes, strings);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + tracks.size() * 64);
+        writeVarInt(out, VERSION);
+
+        writeVarInt(out, strings.size());
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        writeVarInt(out, tracks.size());
+        r = 0;
+        for (Track track : tracks) {
+            for (int i = 0; i < FIELDS; i++) {
+                writeVarInt(out, refs[r++]);
+            }
+            writeVarInt(out, Math.max(0, track.getDuration()));
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Track> decodeList(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new ArrayList<>();
+        }
+
+        Reader in = new Reader(data);
+        int version = in.readVarInt();
+        if (version != VERSION && version != 1) {
+            throw new IllegalArgumentException("Unsupported track codec version: " + version);
+        }
+
+        String[] strings = new String[in.readVarInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readString();
+        }
+
+        int count = in.readVarInt();
+        List<Track> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = ref(strings, in.readVarInt());
+            String title = ref(strings, in.readVarInt());
+            String artist = ref(strings, in.readVarInt());
+            String album = ref(strings, in.readVarInt());
+            String streamUrl = ref(strings, in.readVarInt());
+            String artworkUrl = ref(strings, in.readVarInt());
+            String downloadUrl = version > 1 ? ref(strings, in.readVarInt()) : null;
+            int duration = in.readVarInt();
+            tracks.add(new Track(id, title, artist, album, streamUrl, artworkUrl, duration, downloadUrl));
+        }
+        return tracks;
+    }
+
+    private static int intern(String value, Map<String, Integer> indexes, List<String> strings) {
+        if (value == null) return 0;
+
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(value, index);
+            strings.add(value);
+        }
+        return index + 1;
+    }
+
+    private static String ref(String[] strings, int ref) {
+        return ref == 0 ? null : strings[ref - 1];
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos = 0;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            while (true) {
+                if (pos >= data.length || shift > 28) {
+                    throw new IllegalArgumentException("Corrupt track data");
+                }
+                byte b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length < 0 || pos + length > data.length) {
+                throw new IllegalArgumentException("Corrupt track data");
+            }
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+}
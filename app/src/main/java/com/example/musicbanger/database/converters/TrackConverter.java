@@ -8,18 +8,26 @@ public class TrackConverter {
     private static Gson gson = new Gson();
 
     @TypeConverter
-    public static String fromTrack(Track track) {
+    public static byte[] fromTrack(Track track) {
         if (track == null) {
             return null;
         }
-        return gson.toJson(track);
+        return TrackCodec.encode(track);
     }
 
     @TypeConverter
-    public static Track toTrack(String trackJson) {
+    public static Track toTrack(byte[] trackData) {
+        if (trackData == null) {
+            return null;
+        }
+        return TrackCodec.decode(trackData);
+    }
+
+    // Chỉ dùng cho migration: đọc dữ liệu JSON cũ
+    public static Track fromLegacyJson(String trackJson) {
         if (trackJson == null) {
             return null;
         }
         return gson.fromJson(trackJson, Track.class);
     }
-}
\ No newline at end of file
+}
@@ -10,21 +10,28 @@ import java.util.List;
 
 public class TrackListConverter {
     private static Gson gson = new Gson();
+    // Tạo 1 lần, không dựng lại TypeToken mỗi lần decode
+    private static final Type TRACK_LIST_TYPE = new TypeToken<List<Track>>() {}.getType();
 
     @TypeConverter
-    public static String fromTrackList(List<Track> tracks) {
+    public static byte[] fromTrackList(List<Track> tracks) {
         if (tracks == null) {
-            return "[]";
+            return TrackCodec.encodeList(new ArrayList<>());
         }
-        return gson.toJson(tracks);
+        return TrackCodec.encodeList(tracks);
     }
 
     @TypeConverter
-    public static List<Track> toTrackList(String tracksJson) {
+    public static List<Track> toTrackList(byte[] tracksData) {
+        return TrackCodec.decodeList(tracksData);
+    }
+
+    // Chỉ dùng cho migration: đọc dữ liệu JSON cũ
+    public static List<Track> fromLegacyJson(String tracksJson) {
         if (tracksJson == null || tracksJson.equals("[]")) {
             return new ArrayList<>();
         }
-        Type type = new TypeToken<List<Track>>() {}.getType();
-        return gson.fromJson(tracksJson, type);
+        List<Track> tracks = gson.fromJson(tracksJson, TRACK_LIST_TYPE);
+        return tracks != null ? tracks : new ArrayList<>();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.example.musicbanger.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Upsert;
+import com.example.musicbanger.database.entities.ArtworkColorEntity;
+import java.util.List;
+
+@Dao
+public interface ArtworkColorDao {
+
+    @Upsert
+    void upsertColors(ArtworkColorEntity colors);
+
+    // Nạp sẵn vào bộ nhớ lúc mở app để UI đọc màu đồng bộ
+    @Query("SELECT * FROM artwork_colors ORDER BY updatedAt DESC LIMIT :limit")
+    List<ArtworkColorEntity> getRecentColors(int limit);
+
+    // Chỉ giữ keep dòng mới nhất
+    @Query("DELETE FROM artwork_colors WHERE artworkUrl NOT IN " +
+            "(SELECT artworkUrl FROM artwork_colors ORDER BY updatedAt DESC LIMIT :keep)")
+    int trimColors(int keep);
+}
@@ -0,0 +1,95 @@
+package com.example.musicbanger.database.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.example.musicbanger.database.entities.DownloadEntity;
+import com.example.musicbanger.database.entities.TrackEntity;
+import java.util.List;
+
+@Dao
+public interface DownloadDao {
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertDownload(DownloadEntity download);
+
+    @Query("SELECT * FROM downloads WHERE trackId = :trackId")
+    DownloadEntity getDownload(String trackId);
+
+    @Query("SELECT * FROM downloads WHERE status = " + DownloadEntity.STATUS_COMPLETED)
+    List<DownloadEntity> getCompletedDownloads();
+
+    // Hàng đợi tải: job cũ nhất trước, đi theo index (status, createdAt)
+    @Query("SELECT * FROM downloads WHERE status = " + DownloadEntity.STATUS_QUEUED +
+            " ORDER BY createdAt LIMIT :limit")
+    List<DownloadEntity> getQueuedDownloads(int limit);
+
+    @Query("UPDATE downloads SET status = :status, updatedAt = :now WHERE trackId = :trackId")
+    void setStatus(String trackId, int status, long now);
+
+    @Query("UPDATE downloads SET bytesDownloaded = :bytesDownloaded, totalBytes = :totalBytes, " +
+            "updatedAt = :now WHERE trackId = :trackId")
+    void updateProgress(String trackId, long bytesDownloaded, long totalBytes, long now);
+
+    @Query("UPDATE downloads SET status = " + DownloadEntity.STATUS_COMPLETED + ", " +
+            "bytesDownloaded = :bytes, totalBytes = :bytes, updatedAt = :now WHERE trackId = :trackId")
+    void markCompleted(String trackId, long bytes, long now);
+
+    @Query("UPDATE downloads SET status = :status, attempts = attempts + 1, updatedAt = :now " +
+            "WHERE trackId = :trackId")
+    void recordFailure(String trackId, int status, long now);
+
+    // Job đang tải dở khi app bị tắt: đưa lại vào hàng đợi, file .part vẫn còn để tải tiếp
+    @Query("UPDATE downloads SET status = " + DownloadEntity.STATUS_QUEUED +
+            " WHERE status = " + DownloadEntity.STATUS_DOWNLOADING)
+    int resetInterruptedDownloads();
+
+    @Query("UPDATE downloads SET status = " + DownloadEntity.STATUS_QUEUED + ", attempts = 0" +
+            " WHERE status = " + DownloadEntity.STATUS_QUOTA_EXCEEDED)
+    int requeueQuotaExceeded();
+
+    @Query("UPDATE downloads SET status = " + DownloadEntity.STATUS_QUEUED +
+            ", bytesDownloaded = 0, attempts = 0 WHERE trackId = :trackId")
+    void requeue(String trackId);
+
+    @Query("DELETE FROM downloads WHERE trackId = :trackId")
+    int deleteDownload(String trackId);
+
+    // Dung lượng đã dùng / đã giữ chỗ cho quota
+    @Query("SELECT COALESCE(SUM(CASE WHEN totalBytes > bytesDownloaded THEN totalBytes " +
+            "ELSE bytesDownloaded END), 0) FROM downloads")
+    long getUsedBytes();
+
+    // ========== PLAYLIST OFFLINE ==========
+
+    @Query("UPDATE playlists SET offline = :offline WHERE id = :playlistId")
+    void setPlaylistOffline(String playlistId, boolean offline);
+
+    @Query("SELECT offline FROM playlists WHERE id = :playlistId")
+    LiveData<Boolean> observePlaylistOffline(String playlistId);
+
+    @Query("SELECT COUNT(*) FROM playlist_tracks pt INNER JOIN downloads d ON d.trackId = pt.trackId " +
+            "WHERE pt.playlistId = :playlistId AND d.status = " + DownloadEntity.STATUS_COMPLETED)
+    LiveData<Integer> observeDownloadedCount(String playlistId);
+
+    // Bài thuộc playlist offline nhưng chưa có job tải
+    @Query("SELECT DISTINCT t.* FROM tracks t INNER JOIN playlist_tracks pt ON pt.trackId = t.id " +
+            "INNER JOIN playlists p ON p.id = pt.playlistId " +
+            "WHERE p.offline = 1 AND NOT EXISTS (SELECT 1 FROM downloads d WHERE d.trackId = t.id)")
+    List<TrackEntity> getMissingOfflineTracks();
+
+    // Bài đã tải nhưng không còn thuộc playlist offline nào
+    @Query("SELECT d.* FROM downloads d WHERE NOT EXISTS (SELECT 1 FROM playlist_tracks pt " +
+            "INNER JOIN playlists p ON p.id = pt.playlistId WHERE pt.trackId = d.trackId AND p.offline = 1)")
+    List<DownloadEntity> getUnneededDownloads();
+
+    // Khác 0 khi cần đồng bộ; Room chạy lại mỗi khi playlists / playlist_tracks / downloads thay đổi
+    @Query("SELECT (SELECT COUNT(*) FROM tracks t INNER JOIN playlist_tracks pt ON pt.trackId = t.id " +
+            "INNER JOIN playlists p ON p.id = pt.playlistId " +
+            "WHERE p.offline = 1 AND NOT EXISTS (SELECT 1 FROM downloads d WHERE d.trackId = t.id)) + " +
+            "(SELECT COUNT(*) FROM downloads d WHERE NOT EXISTS (SELECT 1 FROM playlist_tracks pt " +
+            "INNER JOIN playlists p ON p.id = pt.playlistId WHERE pt.trackId = d.trackId AND p.offline = 1))")
+    LiveData<Integer> observeOfflineChanges();
+}
@@ -29,4 +29,8 @@ public interface FavoriteDao {
 
     @Query("SELECT COUNT(*) FROM favorite_tracks WHERE trackId = :trackId")
     int isTrackFavorite(String trackId);
+
+    // Chỉ đọc ID để nạp bộ nhớ đệm yêu thích lúc khởi động
+    @Query("SELECT trackId FROM favorite_tracks")
+    List<String> getAllFavoriteIds();
 }
\ No newline at end of file
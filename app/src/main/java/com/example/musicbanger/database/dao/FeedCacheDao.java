@@ -0,0 +1,25 @@
+package com.example.musicbanger.database.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Upsert;
+import com.example.musicbanger.database.entities.FeedCacheEntity;
+
+@Dao
+public interface FeedCacheDao {
+
+    @Upsert
+    void upsertFeed(FeedCacheEntity feed);
+
+    @Query("SELECT * FROM feed_cache WHERE cacheKey = :cacheKey")
+    FeedCacheEntity getFeed(String cacheKey);
+
+    @Query("DELETE FROM feed_cache WHERE fetchedAt < :cutoff")
+    int deleteOlderThan(long cutoff);
+
+    // Kết quả tìm kiếm sinh ra nhiều khóa: chỉ giữ keep truy vấn gần nhất
+    @Query("DELETE FROM feed_cache WHERE cacheKey LIKE :prefix || '%' AND cacheKey NOT IN " +
+            "(SELECT cacheKey FROM feed_cache WHERE cacheKey LIKE :prefix || '%' " +
+            "ORDER BY fetchedAt DESC LIMIT :keep)")
+    int trimFeeds(String prefix, int keep);
+}
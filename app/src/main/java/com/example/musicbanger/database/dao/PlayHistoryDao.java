@@ -0,0 +1,68 @@
+package com.example.musicbanger.database.dao;
+
+import androidx.room.*;
+import com.example.musicbanger.database.entities.PlayHistoryEntity;
+import com.example.musicbanger.database.entities.TrackEntity;
+import com.example.musicbanger.database.entities.TrackPlayCount;
+import java.util.List;
+
+@Dao
+public interface PlayHistoryDao {
+
+    @Insert
+    long insert(PlayHistoryEntity entry);
+
+    @Upsert
+    void upsertTrack(TrackEntity track);
+
+    @Transaction
+    default void recordPlay(TrackEntity track, PlayHistoryEntity entry) {
+        upsertTrack(track);
+        insert(entry);
+    }
+
+    // Chỉ xét :scanLimit lượt nghe mới nhất (đọc ngược index startedAt) thay vì cả bảng
+    @Query("SELECT t.* FROM tracks t INNER JOIN " +
+            "(SELECT trackId, MAX(startedAt) AS lastPlayed FROM " +
+            "(SELECT trackId, startedAt FROM play_history ORDER BY startedAt DESC LIMIT :scanLimit) " +
+            "GROUP BY trackId ORDER BY lastPlayed DESC LIMIT :limit) h ON h.trackId = t.id " +
+            "ORDER BY h.lastPlayed DESC")
+    List<TrackEntity> getRecentDistinctTracksWithin(int limit, int scanLimit);
+
+    // Quét toàn bộ index (trackId, startedAt), chỉ dùng khi cửa sổ gần nhất không đủ bài
+    @Query("SELECT t.* FROM tracks t INNER JOIN " +
+            "(SELECT trackId, MAX(startedAt) AS lastPlayed FROM play_history " +
+            "GROUP BY trackId ORDER BY lastPlayed DESC LIMIT :limit) h ON h.trackId = t.id " +
+            "ORDER BY h.lastPlayed DESC")
+    List<TrackEntity> getRecentDistinctTracksFull(int limit);
+
+    /**
+     * :limit bài khác nhau nghe gần nhất, mới nhất trước.
+     */
+    @Transaction
+    default List<TrackEntity> getRecentDistinctTracks(int limit) {
+        int scanLimit = limit * 10;
+        List<TrackEntity> tracks = getRecentDistinctTracksWithin(limit, scanLimit);
+        if (tracks.size() < limit && countPlays() > scanLimit) {
+            tracks = getRecentDistinctTracksFull(limit);
+        }
+        return tracks;
+    }
+
+    @Query("SELECT COUNT(*) FROM play_history")
+    int countPlays();
+
+    // Chỉ quét khoảng [from, to) trên index startedAt
+    @Query("SELECT t.*, h.playCount FROM tracks t INNER JOIN " +
+            "(SELECT trackId, COUNT(*) AS playCount FROM play_history " +
+            "WHERE startedAt >= :from AND startedAt < :to " +
+            "GROUP BY trackId ORDER BY playCount DESC LIMIT :limit) h ON h.trackId = t.id " +
+            "ORDER BY h.playCount DESC")
+    List<TrackPlayCount> getTopPlayed(long from, long to, int limit);
+
+    @Query("SELECT COUNT(*) FROM play_history WHERE trackId = :trackId")
+    int getPlayCount(String trackId);
+
+    @Query("SELECT COUNT(*) FROM play_history WHERE trackId = :trackId AND startedAt >= :since")
+    int getPlayCountSince(String trackId, long since);
+}
@@ -1,13 +1,21 @@
 package com.example.musicbanger.database.dao;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.*;
 import com.example.musicbanger.database.entities.PlaylistEntity;
+import com.example.musicbanger.database.entities.PlaylistTrackEntity;
+import com.example.musicbanger.database.entities.TrackEntity;
+import com.example.musicbanger.model.PlaylistSummary;
 import java.util.List;
 
 @Dao
 public interface PlaylistDao {
 
+    // Khoảng cách giữa 2 position liền kề, đủ chỗ để chèn ~10 lần vào cùng một khe trước khi phải đánh số lại
+    long POSITION_GAP = 1024;
+
     @Query("SELECT * FROM playlists ORDER BY createdAt DESC")
     LiveData<List<PlaylistEntity>> getAllPlaylists();
 
@@ -15,6 +23,16 @@ public interface PlaylistDao {
     @Query("SELECT * FROM playlists ORDER BY createdAt DESC")
     List<PlaylistEntity> getAllPlaylistsSync();
 
+    // Chỉ đọc các cột tóm tắt, chi phí tỉ lệ với số playlist chứ không phải tổng số bài hát
+    @Query("SELECT id, name, description, trackCount, coverUrl FROM playlists ORDER BY createdAt DESC")
+    LiveData<List<PlaylistSummary>> observePlaylistSummaries();
+
+    @Query("SELECT id, name, description, trackCount, coverUrl FROM playlists ORDER BY createdAt DESC")
+    List<PlaylistSummary> getPlaylistSummariesSync();
+
+    @Query("SELECT id, name, description, trackCount, coverUrl FROM playlists WHERE id = :playlistId")
+    PlaylistSummary getPlaylistSummary(String playlistId);
+
     @Query("SELECT * FROM playlists WHERE id = :playlistId")
     PlaylistEntity getPlaylistById(String playlistId);
 
@@ -32,4 +50,311 @@ public interface PlaylistDao {
 
     @Query("DELETE FROM playlists WHERE id = :playlistId")
     void deletePlaylistById(String playlistId);
-}
\ No newline at end of file
+
+    @Query("UPDATE playlists SET name = :name WHERE id = :playlistId")
+    void renamePlaylist(String playlistId, String name);
+
+    @Query("UPDATE playlists SET trackCount = trackCount + :delta WHERE id = :playlistId")
+    void adjustTrackCount(String playlistId, int delta);
+
+    @Query("UPDATE playlists SET trackCount = :trackCount WHERE id = :playlistId")
+    void setTrackCount(String playlistId, int trackCount);
+
+    // Ảnh bìa = ảnh bài đầu tiên, tìm qua index (playlistId, position) nên không quét cả playlist
+    @Query("UPDATE playlists SET coverUrl = (SELECT t.artworkUrl FROM playlist_tracks pt " +
+            "INNER JOIN tracks t ON t.id = pt.trackId WHERE pt.playlistId = :playlistId " +
+            "ORDER BY pt.position LIMIT 1) WHERE id = :playlistId")
+    void refreshCoverUrl(String playlistId);
+
+    // ========== TRACKS TRONG PLAYLIST ==========
+
+    // Upsert (không dùng REPLACE): REPLACE sẽ xóa dòng cũ và kéo theo CASCADE xóa playlist_tracks
+    @Upsert
+    void upsertTrack(TrackEntity track);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertPlaylistTrack(PlaylistTrackEntity entry);
+
+    @Query("DELETE FROM playlist_tracks WHERE playlistId = :playlistId AND trackId = :trackId")
+    int deletePlaylistTrack(String playlistId, String trackId);
+
+    @Query("DELETE FROM playlist_tracks WHERE playlistId = :playlistId")
+    int deleteAllPlaylistTracks(String playlistId);
+
+    // Xóa bài khỏi bảng tracks (và chỉ mục tracks_fts qua trigger) khi không còn playlist / lịch sử / bản tải nào dùng
+    @Query("DELETE FROM tracks WHERE id = :trackId " +
+            "AND NOT EXISTS (SELECT 1 FROM playlist_tracks WHERE trackId = :trackId) " +
+            "AND NOT EXISTS (SELECT 1 FROM play_history WHERE trackId = :trackId) " +
+            "AND NOT EXISTS (SELECT 1 FROM downloads WHERE trackId = :trackId)")
+    int deleteTrackIfOrphan(String trackId);
+
+    @Transaction
+    default boolean removeTrack(String playlistId, String trackId) {
+        if (deletePlaylistTrack(playlistId, trackId) == 0) {
+            return false;
+        }
+        adjustTrackCount(playlistId, -1);
+        refreshCoverUrl(playlistId);
+        deleteTrackIfOrphan(trackId);
+        return true;
+    }
+
+    @Query("UPDATE playlist_tracks SET position = :position WHERE playlistId = :playlistId AND trackId = :trackId")
+    void updateTrackPosition(String playlistId, String trackId, long position);
+
+    @Query("SELECT t.* FROM tracks t INNER JOIN playlist_tracks pt ON pt.trackId = t.id " +
+            "WHERE pt.playlistId = :playlistId ORDER BY pt.position")
+    List<TrackEntity> getTracksForPlaylist(String playlistId);
+
+    @Query("SELECT t.* FROM tracks t INNER JOIN playlist_tracks pt ON pt.trackId = t.id " +
+            "WHERE pt.playlistId = :playlistId ORDER BY pt.position LIMIT :limit")
+    List<TrackEntity> getFirstTracks(String playlistId, int limit);
+
+    // Room tự tạo PagingSource (LIMIT/OFFSET) và invalidate khi tracks / playlist_tracks thay đổi
+    @Query("SELECT t.* FROM tracks t INNER JOIN playlist_tracks pt ON pt.trackId = t.id " +
+            "WHERE pt.playlistId = :playlistId ORDER BY pt.position")
+    PagingSource<Integer, TrackEntity> getTracksPaged(String playlistId);
+
+    @Query("SELECT COUNT(*) FROM playlist_tracks WHERE playlistId = :playlistId")
+    int countTracks(String playlistId);
+
+    @Query("SELECT COUNT(*) FROM playlist_tracks WHERE playlistId = :playlistId")
+    LiveData<Integer> observeTrackCount(String playlistId);
+
+    @Query("SELECT position FROM playlist_tracks WHERE playlistId = :playlistId AND trackId = :trackId")
+    Long getTrackPosition(String playlistId, String trackId);
+
+    // Các truy vấn ORDER BY position LIMIT 1 đi thẳng vào index (playlistId, position): O(log n)
+    @Query("SELECT position FROM playlist_tracks WHERE playlistId = :playlistId ORDER BY position ASC LIMIT 1")
+    Long getFirstPosition(String playlistId);
+
+    @Query("SELECT position FROM playlist_tracks WHERE playlistId = :playlistId ORDER BY position DESC LIMIT 1")
+    Long getLastPosition(String playlistId);
+
+    @Query("SELECT position FROM playlist_tracks WHERE playlistId = :playlistId AND position > :position " +
+            "ORDER BY position ASC LIMIT 1")
+    Long getNextPosition(String playlistId, long position);
+
+    @Query("SELECT trackId FROM playlist_tracks WHERE playlistId = :playlistId ORDER BY position")
+    List<String> getTrackIdsInOrder(String playlistId);
+
+    @Query("SELECT trackId FROM playlist_tracks WHERE playlistId = :playlistId " +
+            "ORDER BY position LIMIT 1 OFFSET :index")
+    String getTrackIdAt(String playlistId, int index);
+
+    @Query("SELECT trackId FROM playlist_tracks WHERE playlistId = :playlistId " +
+            "ORDER BY position LIMIT -1 OFFSET :keep")
+    List<String> getTrackIdsBeyond(String playlistId, int keep);
+
+    /**
+     * Giữ lại :keep bài đầu tiên, xóa phần còn lại.
+     */
+    @Transaction
+    default int trimPlaylist(String playlistId, int keep) {
+        List<String> trackIds = getTrackIdsBeyond(playlistId, keep);
+        for (String trackId : trackIds) {
+            deletePlaylistTrack(playlistId, trackId);
+            deleteTrackIfOrphan(trackId);
+        }
+        if (!trackIds.isEmpty()) {
+            adjustTrackCount(playlistId, -trackIds.size());
+        }
+        return trackIds.size();
+    }
+
+    /**
+     * Thêm bài hát vào cuối playlist. Trả về false nếu bài đã có trong playlist.
+     */
+    @Transaction
+    default boolean appendTrack(String playlistId, TrackEntity track) {
+        upsertTrack(track);
+        Long last = getLastPosition(playlistId);
+        long position = last != null ? last + POSITION_GAP : 0;
+        if (insertPlaylistTrack(new PlaylistTrackEntity(playlistId, track.id, position)) == -1) {
+            return false;
+        }
+
+        adjustTrackCount(playlistId, 1);
+        if (last == null) {
+            refreshCoverUrl(playlistId); // Bài đầu tiên của playlist
+        }
+        return true;
+    }
+
+    /**
+     * Thêm cả danh sách bài vào cuối playlist trong 1 transaction; bài đã có thì bỏ qua.
+     * Trả về số bài thực sự được thêm.
+     */
+    @Transaction
+    default int appendTracks(String playlistId, List<TrackEntity> tracks) {
+        Long last = getLastPosition(playlistId);
+        long position = last != null ? last + POSITION_GAP : 0;
+        int added = 0;
+        for (TrackEntity track : tracks) {
+            upsertTrack(track);
+            if (insertPlaylistTrack(new PlaylistTrackEntity(playlistId, track.id, position)) != -1) {
+                position += POSITION_GAP;
+                added++;
+            }
+        }
+
+        if (added > 0) {
+            adjustTrackCount(playlistId, added);
+            if (last == null) {
+                refreshCoverUrl(playlistId);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Xóa nhiều bài khỏi playlist trong 1 transaction. Trả về số bài đã xóa.
+     */
+    @Transaction
+    default int removeTracks(String playlistId, List<String> trackIds) {
+        int removed = 0;
+        for (String trackId : trackIds) {
+            if (deletePlaylistTrack(playlistId, trackId) > 0) {
+                removed++;
+                deleteTrackIfOrphan(trackId);
+            }
+        }
+
+        if (removed > 0) {
+            adjustTrackCount(playlistId, -removed);
+            refreshCoverUrl(playlistId);
+        }
+        return removed;
+    }
+
+    /**
+     * Thay toàn bộ nội dung playlist bằng danh sách mới (giữ thứ tự, bỏ bài trùng).
+     * Trả về số bài của playlist sau khi thay.
+     */
+    @Transaction
+    default int replaceAllTracks(String playlistId, List<TrackEntity> tracks) {
+        List<String> oldTrackIds = getTrackIdsInOrder(playlistId);
+        deleteAllPlaylistTracks(playlistId);
+
+        int count = 0;
+        for (TrackEntity track : tracks) {
+            upsertTrack(track);
+            if (insertPlaylistTrack(new PlaylistTrackEntity(playlistId, track.id, count * POSITION_GAP)) != -1) {
+                count++;
+            }
+        }
+
+        // Bài cũ vẫn nằm trong danh sách mới thì không bị xóa vì còn được tham chiếu
+        for (String trackId : oldTrackIds) {
+            deleteTrackIfOrphan(trackId);
+        }
+        setTrackCount(playlistId, count);
+        refreshCoverUrl(playlistId);
+        return count;
+    }
+
+    /**
+     * Di chuyển bài ở vị trí fromIndex sang vị trí toIndex (tính theo danh sách sau khi di chuyển).
+     */
+    @Transaction
+    default boolean moveTrack(String playlistId, int fromIndex, int toIndex) {
+        if (fromIndex == toIndex || fromIndex < 0 || toIndex < 0) {
+            return false;
+        }
+        String trackId = getTrackIdAt(playlistId, fromIndex);
+        if (trackId == null) {
+            return false;
+        }
+        if (toIndex == 0) {
+            return moveTrackAfter(playlistId, trackId, null);
+        }
+
+        // Khi dời xuống, các bài phía sau dịch lên 1 nên bài đứng trước đích đang ở toIndex
+        String afterTrackId = getTrackIdAt(playlistId, toIndex > fromIndex ? toIndex : toIndex - 1);
+        return afterTrackId != null && moveTrackAfter(playlistId, trackId, afterTrackId);
+    }
+
+    /**
+     * Đưa bài hát lên đầu playlist (thêm mới nếu chưa có).
+     */
+    @Transaction
+    default void prependTrack(String playlistId, TrackEntity track) {
+        upsertTrack(track);
+        Long first = getFirstPosition(playlistId);
+        Long current = getTrackPosition(playlistId, track.id);
+        if (current != null && current.equals(first)) {
+            return;
+        }
+
+        long position = first != null ? first - POSITION_GAP : 0;
+        if (current != null) {
+            updateTrackPosition(playlistId, track.id, position);
+        } else {
+            insertPlaylistTrack(new PlaylistTrackEntity(playlistId, track.id, position));
+            adjustTrackCount(playlistId, 1);
+        }
+        refreshCoverUrl(playlistId);
+    }
+
+    /**
+     * Di chuyển bài hát ngay sau afterTrackId (null = lên đầu playlist).
+     * Chỉ cập nhật 1 dòng, trừ khi khe giữa 2 bài đã hết chỗ thì đánh số lại playlist.
+     */
+    @Transaction
+    default boolean moveTrackAfter(String playlistId, String trackId, @Nullable String afterTrackId) {
+        Long current = getTrackPosition(playlistId, trackId);
+        if (current == null || trackId.equals(afterTrackId)) {
+            return false;
+        }
+
+        if (afterTrackId == null) {
+            Long first = getFirstPosition(playlistId);
+            if (!current.equals(first)) {
+                updateTrackPosition(playlistId, trackId, first - POSITION_GAP);
+                refreshCoverUrl(playlistId);
+            }
+            return true;
+        }
+
+        Long after = getTrackPosition(playlistId, afterTrackId);
+        if (after == null) {
+            return false;
+        }
+
+        boolean wasFirst = current.equals(getFirstPosition(playlistId));
+        Long next = getNextPosition(playlistId, after);
+        if (next == null) {
+            updateTrackPosition(playlistId, trackId, after + POSITION_GAP);
+        } else if (next.equals(current)) {
+            return true; // Đã đứng ngay sau afterTrackId
+        } else if (next - after < 2) {
+            renumberPositions(playlistId);
+            return moveTrackAfter(playlistId, trackId, afterTrackId);
+        } else {
+            updateTrackPosition(playlistId, trackId, after + (next - after) / 2);
+        }
+        if (wasFirst) {
+            refreshCoverUrl(playlistId);
+        }
+        return true;
+    }
+
+    /**
+     * Ghi một loạt bài vừa nghe (cũ trước, mới nhất ở cuối) lên đầu playlist rồi cắt còn :keep bài.
+     */
+    @Transaction
+    default void recordRecentlyPlayed(String playlistId, List<TrackEntity> tracks, int keep) {
+        for (TrackEntity track : tracks) {
+            prependTrack(playlistId, track);
+        }
+        trimPlaylist(playlistId, keep);
+    }
+
+    @Transaction
+    default void renumberPositions(String playlistId) {
+        List<String> trackIds = getTrackIdsInOrder(playlistId);
+        for (int i = 0; i < trackIds.size(); i++) {
+            updateTrackPosition(playlistId, trackIds.get(i), i * POSITION_GAP);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.musicbanger.database.dao;
+
+import androidx.room.*;
+import com.example.musicbanger.database.entities.TrackEntity;
+import com.example.musicbanger.database.entities.TrackSearchResult;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Dao
+public interface TrackDao {
+
+    // Số ứng viên tối đa lấy từ FTS trước khi xếp hạng
+    int MAX_CANDIDATES = 200;
+
+    // Trọng số cột khi xếp hạng: title > artistName > albumName (cùng thứ tự cột trong tracks_fts)
+    double[] COLUMN_WEIGHTS = {3.0, 2.0, 1.0};
+
+    @Query("SELECT t.*, matchinfo(tracks_fts, 'pcx') AS matchInfo FROM tracks t " +
+            "INNER JOIN tracks_fts ON t.rowid = tracks_fts.rowid " +
+            "WHERE tracks_fts MATCH :ftsQuery LIMIT :limit")
+    List<TrackSearchResult> matchTracks(String ftsQuery, int limit);
+
+    /**
+     * Tìm trong các bài hát đã có trên máy, khớp tiền tố từng từ, xếp hạng theo độ liên quan.
+     */
+    default List<TrackEntity> search(String rawQuery, int limit) {
+        String ftsQuery = toFtsQuery(rawQuery);
+        if (ftsQuery == null) {
+            return new ArrayList<>();
+        }
+
+        List<TrackSearchResult> candidates = matchTracks(ftsQuery, MAX_CANDIDATES);
+        List<double[]> scored = new ArrayList<>(candidates.size()); // {score, index}
+        for (int i = 0; i < candidates.size(); i++) {
+            scored.add(new double[]{score(candidates.get(i).matchInfo), i});
+        }
+        Collections.sort(scored, (a, b) -> Double.compare(b[0], a[0]));
+
+        List<TrackEntity> tracks = new ArrayList<>(Math.min(limit, scored.size()));
+        for (int i = 0; i < scored.size() && i < limit; i++) {
+            tracks.add(candidates.get((int) scored.get(i)[1]).track);
+        }
+        return tracks;
+    }
+
+    /**
+     * Chuyển chuỗi người dùng gõ thành truy vấn FTS an toàn: chỉ giữ chữ / số, mỗi từ thành "từ*".
+     * Trả về null nếu không còn từ nào.
+     */
+    static String toFtsQuery(String rawQuery) {
+        if (rawQuery == null) return null;
+
+        StringBuilder query = new StringBuilder();
+        for (String token : rawQuery.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) continue;
+            if (query.length() > 0) query.append(' ');
+            query.append(token).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /**
+     * Điểm kiểu tf-idf từ matchinfo 'pcx': với mỗi (cụm từ, cột) cộng
+     * trọng số cột * số lần khớp ở dòng này / tổng số lần khớp trên cả bảng.
+     */
+    static double score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 8) return 0;
+
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int offset = 8 + (phrase * columnCount + column) * 12;
+                if (offset + 8 > matchInfo.length) return score;
+
+                int hitsInRow = buffer.getInt(offset);
+                int hitsInAllRows = buffer.getInt(offset + 4);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    score += weight * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
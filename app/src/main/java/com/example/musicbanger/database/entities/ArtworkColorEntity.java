@@ -0,0 +1,35 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Màu trích từ ảnh bìa bằng Palette, khóa theo URL ảnh (nhiều bài cùng album dùng chung 1 dòng).
+ * Màu bằng 0 (trong suốt) nghĩa là ảnh không có swatch tương ứng.
+ * Index updatedAt để cắt bớt các dòng cũ nhất.
+ */
+@Entity(tableName = "artwork_colors", indices = @Index(value = "updatedAt"))
+public class ArtworkColorEntity {
+    @PrimaryKey
+    @NonNull
+    public String artworkUrl;
+
+    public int dominant;
+    public int vibrant;
+    public int muted;
+    public long updatedAt;
+
+    public ArtworkColorEntity() {
+        this.artworkUrl = "";
+    }
+
+    public ArtworkColorEntity(@NonNull String artworkUrl, int dominant, int vibrant, int muted, long updatedAt) {
+        this.artworkUrl = artworkUrl;
+        this.dominant = dominant;
+        this.vibrant = vibrant;
+        this.muted = muted;
+        this.updatedAt = updatedAt;
+    }
+}
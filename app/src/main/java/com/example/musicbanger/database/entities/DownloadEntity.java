@@ -0,0 +1,54 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Một bài hát tải về để nghe offline, đồng thời là 1 job trong hàng đợi tải của DownloadManager.
+ * bytesDownloaded được ghi định kỳ để tải tiếp bằng HTTP Range sau khi app bị tắt.
+ */
+@Entity(
+        tableName = "downloads",
+        foreignKeys = @ForeignKey(entity = TrackEntity.class,
+                parentColumns = "id",
+                childColumns = "trackId",
+                onDelete = ForeignKey.CASCADE),
+        indices = @Index(value = {"status", "createdAt"})
+)
+public class DownloadEntity {
+    public static final int STATUS_QUEUED = 0;
+    public static final int STATUS_DOWNLOADING = 1;
+    public static final int STATUS_COMPLETED = 2;
+    public static final int STATUS_FAILED = 3;
+    public static final int STATUS_QUOTA_EXCEEDED = 4; // Chờ người dùng giải phóng dung lượng
+
+    @PrimaryKey
+    @NonNull
+    public String trackId;
+
+    public String url;
+    public String filePath;
+    public int status;
+    public long bytesDownloaded;
+    public long totalBytes; // -1 = chưa biết
+    public int attempts;
+    public long createdAt;
+    public long updatedAt;
+
+    public DownloadEntity() {
+        this.trackId = "";
+    }
+
+    public DownloadEntity(@NonNull String trackId, String url, String filePath) {
+        this.trackId = trackId;
+        this.url = url;
+        this.filePath = filePath;
+        this.status = STATUS_QUEUED;
+        this.totalBytes = -1;
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = createdAt;
+    }
+}
@@ -10,16 +10,16 @@ public class FavoriteTrackEntity {
     @NonNull
     public String trackId;
 
-    public String trackJson;
+    public byte[] trackData; // Mã hóa bằng TrackCodec
     public long addedAt;
 
     public FavoriteTrackEntity() {
         this.trackId = "";
     }
 
-    public FavoriteTrackEntity(@NonNull String trackId, String trackJson) {
+    public FavoriteTrackEntity(@NonNull String trackId, byte[] trackData) {
         this.trackId = trackId;
-        this.trackJson = trackJson;
+        this.trackData = trackData;
         this.addedAt = System.currentTimeMillis();
     }
-}
\ No newline at end of file
+}
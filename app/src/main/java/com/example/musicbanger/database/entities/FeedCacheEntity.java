@@ -0,0 +1,31 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Response Jamendo lần gần nhất thành công (feed trang chủ, feed thể loại, kết quả tìm kiếm),
+ * để hiển thị ngay khi mở app / khi mất mạng rồi làm mới ở nền.
+ * tracksData mã hóa bằng TrackCodec.encodeList; index fetchedAt để dọn dữ liệu cũ.
+ */
+@Entity(tableName = "feed_cache", indices = @Index(value = "fetchedAt"))
+public class FeedCacheEntity {
+    @PrimaryKey
+    @NonNull
+    public String cacheKey;
+
+    public byte[] tracksData;
+    public long fetchedAt;
+
+    public FeedCacheEntity() {
+        this.cacheKey = "";
+    }
+
+    public FeedCacheEntity(@NonNull String cacheKey, byte[] tracksData, long fetchedAt) {
+        this.cacheKey = cacheKey;
+        this.tracksData = tracksData;
+        this.fetchedAt = fetchedAt;
+    }
+}
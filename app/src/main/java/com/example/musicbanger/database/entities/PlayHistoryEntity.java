@@ -0,0 +1,45 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Một lượt nghe, chỉ thêm mới không sửa.
+ * Index startedAt cho các truy vấn theo thời gian, (trackId, startedAt) cho truy vấn theo bài hát.
+ */
+@Entity(
+        tableName = "play_history",
+        foreignKeys = @ForeignKey(entity = TrackEntity.class,
+                parentColumns = "id",
+                childColumns = "trackId",
+                onDelete = ForeignKey.CASCADE),
+        indices = {
+                @Index(value = "startedAt"),
+                @Index(value = {"trackId", "startedAt"})
+        }
+)
+public class PlayHistoryEntity {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    public String trackId;
+
+    public long startedAt;
+    public long listenedMs;
+    public boolean completed;
+
+    public PlayHistoryEntity() {
+        this.trackId = "";
+    }
+
+    public PlayHistoryEntity(@NonNull String trackId, long startedAt, long listenedMs, boolean completed) {
+        this.trackId = trackId;
+        this.startedAt = startedAt;
+        this.listenedMs = listenedMs;
+        this.completed = completed;
+    }
+}
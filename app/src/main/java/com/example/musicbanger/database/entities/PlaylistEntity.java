@@ -1,13 +1,11 @@
 package com.example.musicbanger.database.entities;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
-import androidx.room.TypeConverters;
-import com.example.musicbanger.database.converters.TrackListConverter;
 
 @Entity(tableName = "playlists")
-@TypeConverters(TrackListConverter.class)
 public class PlaylistEntity {
     @PrimaryKey
     @NonNull
@@ -17,7 +15,15 @@ public class PlaylistEntity {
     public String description;
     public long createdAt;
     public boolean isDefault;
-    public String tracksJson;
+
+    // Thông tin tóm tắt, PlaylistDao cập nhật cùng transaction với playlist_tracks
+    @ColumnInfo(defaultValue = "0")
+    public int trackCount;
+    public String coverUrl; // Ảnh của bài đầu tiên trong playlist
+
+    // Người dùng bật "Tải xuống để nghe offline": mọi bài của playlist được DownloadManager tải về
+    @ColumnInfo(defaultValue = "0")
+    public boolean offline;
 
     public PlaylistEntity() {
         this.id = ""; // Khởi tạo giá trị mặc định
@@ -29,6 +35,5 @@ public class PlaylistEntity {
         this.description = description;
         this.createdAt = System.currentTimeMillis();
         this.isDefault = isDefault;
-        this.tracksJson = "[]";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * Một dòng = một bài hát trong một playlist.
+ * position là số thưa (cách nhau POSITION_GAP) để chèn / đổi chỗ không phải đánh số lại cả playlist.
+ */
+@Entity(
+        tableName = "playlist_tracks",
+        primaryKeys = {"playlistId", "trackId"},
+        foreignKeys = {
+                @ForeignKey(entity = PlaylistEntity.class,
+                        parentColumns = "id",
+                        childColumns = "playlistId",
+                        onDelete = ForeignKey.CASCADE),
+                @ForeignKey(entity = TrackEntity.class,
+                        parentColumns = "id",
+                        childColumns = "trackId",
+                        onDelete = ForeignKey.CASCADE)
+        },
+        indices = {
+                @Index(value = {"playlistId", "position"}),
+                @Index(value = "trackId")
+        }
+)
+public class PlaylistTrackEntity {
+    @NonNull
+    public String playlistId;
+
+    @NonNull
+    public String trackId;
+
+    public long position;
+    public long addedAt;
+
+    public PlaylistTrackEntity() {
+        this.playlistId = "";
+        this.trackId = "";
+    }
+
+    public PlaylistTrackEntity(@NonNull String playlistId, @NonNull String trackId, long position) {
+        this.playlistId = playlistId;
+        this.trackId = trackId;
+        this.position = position;
+        this.addedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+import com.example.musicbanger.model.Track;
+
+@Entity(tableName = "tracks")
+public class TrackEntity {
+    @PrimaryKey
+    @NonNull
+    public String id;
+
+    public String title;
+    public String artistName;
+    public String albumName;
+    public String streamUrl;
+    public String artworkUrl;
+    public int duration;
+    public String downloadUrl;
+
+    public TrackEntity() {
+        this.id = "";
+    }
+
+    public static TrackEntity fromTrack(Track track) {
+        TrackEntity entity = new TrackEntity();
+        entity.id = track.getId();
+        entity.title = track.getTitle();
+        entity.artistName = track.getArtistName();
+        entity.albumName = track.getAlbumName();
+        entity.streamUrl = track.getStreamUrl();
+        entity.artworkUrl = track.getArtworkUrl();
+        entity.duration = track.getDuration();
+        entity.downloadUrl = track.getDownloadUrl();
+        return entity;
+    }
+
+    public Track toTrack() {
+        return new Track(id, title, artistName, albumName, streamUrl, artworkUrl, duration, downloadUrl);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Chỉ mục full-text (external content) trên bảng tracks.
+ * Room tự tạo trigger đồng bộ nên chỉ mục cập nhật theo từng dòng khi tracks thay đổi.
+ * unicode61 bỏ dấu và không phân biệt hoa thường: "son tung" khớp "Sơn Tùng".
+ */
+@Fts4(contentEntity = TrackEntity.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "tracks_fts")
+public class TrackFtsEntity {
+    public String title;
+    public String artistName;
+    public String albumName;
+}
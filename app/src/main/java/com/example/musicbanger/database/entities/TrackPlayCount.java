@@ -0,0 +1,11 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.room.Embedded;
+
+// Kết quả truy vấn "nghe nhiều nhất": bài hát kèm số lượt nghe
+public class TrackPlayCount {
+    @Embedded
+    public TrackEntity track;
+
+    public int playCount;
+}
@@ -0,0 +1,11 @@
+package com.example.musicbanger.database.entities;
+
+import androidx.room.Embedded;
+
+// Một dòng kết quả FTS: bài hát kèm matchinfo(tracks_fts, 'pcx') để xếp hạng
+public class TrackSearchResult {
+    @Embedded
+    public TrackEntity track;
+
+    public byte[] matchInfo;
+}
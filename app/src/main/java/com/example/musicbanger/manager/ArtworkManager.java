@@ -0,0 +1,272 @@
+package com.example.musicbanger.manager;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.ImageView;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.palette.graphics.Palette;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.transition.Transition;
+import com.example.musicbanger.R;
+import com.example.musicbanger.database.MusicDatabase;
+import com.example.musicbanger.database.dao.ArtworkColorDao;
+import com.example.musicbanger.database.entities.ArtworkColorEntity;
+import com.example.musicbanger.model.Track;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ảnh bìa bài hát dùng chung cho notification, MiniPlayer, NowPlayingActivity và danh sách bài.
+ * Mọi nơi đều tải qua đây với cùng model (khóa theo id bài) và cùng tuỳ chọn theo từng cỡ,
+ * nên cache bộ nhớ / đĩa của Glide (giới hạn trong MusicBangerGlideModule) dùng lại được:
+ * mỗi bài chỉ tải mạng 1 lần và giải mã 1 lần cho mỗi cỡ.
+ * Màu Palette của ảnh bìa được trích 1 lần, lưu vào Room và giữ bản sao trong bộ nhớ
+ * để UI đọc đồng bộ ngay khung hình đầu.
+ */
+public class ArtworkManager {
+    private static final String TAG = "ArtworkManager";
+
+    // Cỡ ảnh cố định (px): các view gần cỡ nhau dùng chung 1 bản giải mã
+    public enum Size {
+        THUMB(256), // Danh sách, MiniPlayer, notification
+        FULL(1024); // Màn hình đang phát
+
+        final int px;
+
+        Size(int px) {
+            this.px = px;
+        }
+    }
+
+    public interface ArtworkCallback {
+        void onArtworkReady(@NonNull Bitmap bitmap);
+        void onArtworkFailed();
+    }
+
+    public interface ColorsCallback {
+        void onColorsReady(@NonNull ArtworkColors colors);
+        void onColorsFailed();
+    }
+
+    // Số dòng màu giữ lại trong DB (và nạp sẵn vào bộ nhớ)
+    private static final int MAX_COLOR_ENTRIES = 1000;
+    // Palette chỉ cần ảnh thu nhỏ: ~64x64 px là đủ cho màu chủ đạo
+    private static final int PALETTE_AREA = 64 * 64;
+
+    private static ArtworkManager instance;
+
+    private final Context context;
+    private final ArtworkColorDao colorDao;
+    private final Map<String, ArtworkColors> colorCache = new ConcurrentHashMap<>();
+    private final ExecutorService paletteExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ArtworkManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.colorDao = MusicDatabase.getInstance(this.context).artworkColorDao();
+        MusicDatabase.getDatabaseExecutor().execute(this::preloadColors);
+    }
+
+    public static void initialize(Context context) {
+        if (instance == null) {
+            instance = new ArtworkManager(context);
+        }
+    }
+
+    public static ArtworkManager getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("ArtworkManager must be initialized first. Call initialize() in your Application class.");
+        }
+        return instance;
+    }
+
+    // ========== TẢI ẢNH ==========
+
+    // Hiển thị ảnh bìa vào ImageView, vòng đời theo view
+    public void loadInto(ImageView view, @Nullable Track track, Size size) {
+        if (track == null || track.getArtworkUri() == null) {
+            Glide.with(view).clear(view);
+            view.setImageResource(R.drawable.ic_music_note);
+            return;
+        }
+        request(Glide.with(view), track, size)
+                .placeholder(R.drawable.ic_music_note)
+                .error(R.drawable.ic_music_note)
+                .into(view);
+    }
+
+    /**
+     * Lấy bitmap ảnh bìa (notification, Palette...). Kết quả trả về trên main thread.
+     * Người gọi giữ target trả về và gọi {@link #cancel} khi không cần ảnh nữa để Glide
+     * đưa bitmap trở lại cache bộ nhớ; trả về null nếu bài không có ảnh bìa.
+     */
+    @Nullable
+    public CustomTarget<Bitmap> loadBitmap(@Nullable Track track, Size size, ArtworkCallback callback) {
+        if (track == null || track.getArtworkUri() == null) {
+            callback.onArtworkFailed();
+            return null;
+        }
+        return request(Glide.with(context), track, size)
+                .into(new CustomTarget<Bitmap>(size.px, size.px) {
+                    @Override
+                    public void onResourceReady(@NonNull Bitmap resource,
+                                                @Nullable Transition<? super Bitmap> transition) {
+                        callback.onArtworkReady(resource);
+                    }
+
+                    @Override
+                    public void onLoadFailed(@Nullable Drawable errorDrawable) {
+                        Log.w(TAG, "Failed to load artwork for " + track.getTitle());
+                        callback.onArtworkFailed();
+                    }
+
+                    @Override
+                    public void onLoadCleared(@Nullable Drawable placeholder) {
+                    }
+                });
+    }
+
+    public void cancel(@Nullable CustomTarget<Bitmap> target) {
+        if (target != null) {
+            Glide.with(context).clear(target);
+        }
+    }
+
+    // ========== MÀU ẢNH BÌA ==========
+
+    // Màu đã trích cho ảnh bìa của bài, null nếu chưa có (gọi được trên main thread)
+    @Nullable
+    public ArtworkColors getCachedColors(@Nullable Track track) {
+        if (track == null || track.getArtworkUri() == null) return null;
+        return colorCache.get(track.getArtworkUri().toString());
+    }
+
+    /**
+     * Lấy màu ảnh bìa: trả ngay nếu đã có, nếu không thì trích từ bitmap cỡ THUMB
+     * (dùng chung bản giải mã với MiniPlayer / notification) trên luồng riêng rồi lưu lại.
+     * Callback chạy trên main thread.
+     */
+    public void loadColors(@Nullable Track track, ColorsCallback callback) {
+        ArtworkColors cached = getCachedColors(track);
+        if (cached != null) {
+            callback.onColorsReady(cached);
+            return;
+        }
+
+        String artworkUrl = track != null && track.getArtworkUri() != null
+                ? track.getArtworkUri().toString() : null;
+        AtomicReference<CustomTarget<Bitmap>> target = new AtomicReference<>();
+        target.set(loadBitmap(track, Size.THUMB, new ArtworkCallback() {
+            @Override
+            public void onArtworkReady(@NonNull Bitmap bitmap) {
+                // Giữ target tới khi Palette đọc xong để bitmap không bị trả về pool.
+                // Ảnh có sẵn trong cache thì callback chạy ngay trong loadBitmap, nên target chỉ
+                // được đọc sau khi đã post về main thread
+                paletteExecutor.execute(() -> {
+                    ArtworkColors colors = extractColors(bitmap);
+                    mainHandler.post(() -> {
+                        cancel(target.get());
+                        colorCache.put(artworkUrl, colors);
+                        callback.onColorsReady(colors);
+                    });
+                    saveColors(artworkUrl, colors);
+                });
+            }
+
+            @Override
+            public void onArtworkFailed() {
+                callback.onColorsFailed();
+            }
+        }));
+    }
+
+    private ArtworkColors extractColors(Bitmap bitmap) {
+        Palette palette = Palette.from(bitmap)
+                .resizeBitmapArea(PALETTE_AREA)
+                .generate();
+        return new ArtworkColors(palette.getDominantColor(ArtworkColors.NONE),
+                palette.getVibrantColor(ArtworkColors.NONE),
+                palette.getMutedColor(ArtworkColors.NONE));
+    }
+
+    private void preloadColors() {
+        try {
+            List<ArtworkColorEntity> rows = colorDao.getRecentColors(MAX_COLOR_ENTRIES);
+            for (ArtworkColorEntity row : rows) {
+                colorCache.putIfAbsent(row.artworkUrl, new ArtworkColors(row.dominant, row.vibrant, row.muted));
+            }
+            Log.d(TAG, "Preloaded " + rows.size() + " artwork colors");
+        } catch (Exception e) {
+            Log.e(TAG, "Error preloading artwork colors", e);
+        }
+    }
+
+    private void saveColors(String artworkUrl, ArtworkColors colors) {
+        MusicDatabase.getDatabaseExecutor().execute(() -> {
+            try {
+                colorDao.upsertColors(new ArtworkColorEntity(artworkUrl, colors.dominant,
+                        colors.vibrant, colors.muted, System.currentTimeMillis()));
+                colorDao.trimColors(MAX_COLOR_ENTRIES);
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving artwork colors", e);
+            }
+        });
+    }
+
+    // Khóa cache bộ nhớ của Glide gồm model + cỡ + biến đổi + kiểu kết quả:
+    // luôn asBitmap, centerCrop và override theo cỡ để mọi nơi ra cùng 1 khóa
+    private RequestBuilder<Bitmap> request(RequestManager glide, Track track, Size size) {
+        return glide.asBitmap()
+                .load(new ArtworkUrl(track))
+                .diskCacheStrategy(DiskCacheStrategy.DATA) // Lưu ảnh gốc 1 lần, giải mã theo từng cỡ
+                .override(size.px)
+                .centerCrop();
+    }
+
+    // URL ảnh Jamendo có thể đổi tham số; khóa theo id bài để cache không bị trùng lặp
+    private static final class ArtworkUrl extends GlideUrl {
+        private final String cacheKey;
+
+        ArtworkUrl(Track track) {
+            super(track.getArtworkUri().toString());
+            this.cacheKey = "artwork:" + track.getId();
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+    }
+
+    public static class ArtworkColors {
+        public static final int NONE = 0; // Ảnh không có swatch này
+
+        private final int dominant;
+        private final int vibrant;
+        private final int muted;
+
+        ArtworkColors(int dominant, int vibrant, int muted) {
+            this.dominant = dominant;
+            this.vibrant = vibrant;
+            this.muted = muted;
+        }
+
+        public int getDominant(int fallback) { return dominant != NONE ? dominant : fallback; }
+        public int getVibrant(int fallback) { return vibrant != NONE ? vibrant : fallback; }
+        public int getMuted(int fallback) { return muted != NONE ? muted : fallback; }
+    }
+}
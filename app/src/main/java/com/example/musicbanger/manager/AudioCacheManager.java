@@ -0,0 +1,197 @@
+package com.example.musicbanger.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.example.musicbanger.api.MusicApiService;
+import com.example.musicbanger.model.Track;
+import com.google.android.exoplayer2.database.StandaloneDatabaseProvider;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache nhạc trên đĩa (SimpleCache + LRU) dùng chung cho ExoPlayer và các tác vụ tải trước.
+ * Key của cache là id bài hát nên URL stream Jamendo đổi tham số vẫn dùng lại được dữ liệu đã tải.
+ */
+public class AudioCacheManager {
+    private static final String TAG = "AudioCacheManager";
+    private static final String CACHE_DIR = "audio_cache";
+    private static final String PREFS_NAME = "audio_cache_prefs";
+    private static final String KEY_MAX_SIZE_MB = "max_size_mb";
+    public static final int DEFAULT_MAX_SIZE_MB = 256;
+
+    private static AudioCacheManager instance;
+
+    private final SimpleCache cache;
+    private final CacheDataSource.Factory cacheDataSourceFactory;
+    private final long maxBytes;
+
+    // Thống kê: hit = lần đọc được phục vụ từ đĩa, miss = lần phải mở kết nối mạng
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong cachedBytesRead = new AtomicLong();
+    private final AtomicLong networkBytesRead = new AtomicLong();
+
+    private AudioCacheManager(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.maxBytes = getMaxCacheSizeMb(appContext) * 1024L * 1024L;
+        this.cache = new SimpleCache(new File(appContext.getCacheDir(), CACHE_DIR),
+                new LeastRecentlyUsedCacheEvictor(maxBytes),
+                new StandaloneDatabaseProvider(appContext));
+
+        // Stream đi qua OkHttp dùng chung: tái sử dụng kết nối / phiên TLS với API và ảnh bìa
+        OkHttpDataSource.Factory httpFactory = new OkHttpDataSource.Factory(MusicApiService.getMediaClient())
+                .setTransferListener(networkListener);
+        this.cacheDataSourceFactory = new CacheDataSource.Factory()
+                .setCache(cache)
+                .setUpstreamDataSourceFactory(new DefaultDataSource.Factory(appContext, httpFactory))
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                .setEventListener(cacheListener);
+
+        Log.d(TAG, "Audio cache ready, max " + (maxBytes / (1024 * 1024)) + " MB");
+    }
+
+    public static void initialize(Context context) {
+        if (instance == null) {
+            instance = new AudioCacheManager(context);
+        }
+    }
+
+    public static AudioCacheManager getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("AudioCacheManager must be initialized first. Call initialize() in your Application class.");
+        }
+        return instance;
+    }
+
+    // ========== CẤU HÌNH ==========
+
+    public static int getMaxCacheSizeMb(Context context) {
+        return prefs(context).getInt(KEY_MAX_SIZE_MB, DEFAULT_MAX_SIZE_MB);
+    }
+
+    // SimpleCache không đổi được evictor khi đang chạy: dung lượng mới áp dụng từ lần mở app sau
+    public static void setMaxCacheSizeMb(Context context, int sizeMb) {
+        prefs(context).edit().putInt(KEY_MAX_SIZE_MB, Math.max(16, sizeMb)).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // ========== DATA SOURCE ==========
+
+    // Đọc từ đĩa nếu có, thiếu thì tải từ mạng và ghi lại vào cache
+    public DataSource.Factory getDataSourceFactory() {
+        return cacheDataSourceFactory;
+    }
+
+    public CacheDataSource createCacheDataSource() {
+        return cacheDataSourceFactory.createDataSource();
+    }
+
+    public SimpleCache getCache() {
+        return cache;
+    }
+
+    public static String cacheKey(Track track) {
+        return "track:" + track.getId();
+    }
+
+    // Số byte đầu bài hát đã nằm trong cache
+    public long getCachedBytes(Track track, long length) {
+        return cache.getCachedBytes(cacheKey(track), 0, length);
+    }
+
+    // ========== THỐNG KÊ ==========
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), cachedBytesRead.get(),
+                networkBytesRead.get(), cache.getCacheSpace(), maxBytes);
+    }
+
+    private final CacheDataSource.EventListener cacheListener = new CacheDataSource.EventListener() {
+        @Override
+        public void onCachedBytesRead(long cacheSizeBytes, long bytesRead) {
+            hits.incrementAndGet();
+            cachedBytesRead.addAndGet(bytesRead);
+        }
+
+        @Override
+        public void onCacheIgnored(int reason) {
+            Log.w(TAG, "Cache ignored, reason: " + reason);
+        }
+    };
+
+    private final TransferListener networkListener = new TransferListener() {
+        @Override
+        public void onTransferInitializing(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+        }
+
+        @Override
+        public void onTransferStart(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+            if (isNetwork) {
+                misses.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onBytesTransferred(@NonNull DataSource source, @NonNull DataSpec dataSpec,
+                                       boolean isNetwork, int bytesTransferred) {
+            if (isNetwork) {
+                networkBytesRead.addAndGet(bytesTransferred);
+            }
+        }
+
+        @Override
+        public void onTransferEnd(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+        }
+    };
+
+    public static class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long cachedBytesRead;
+        private final long networkBytesRead;
+        private final long cacheSizeBytes;
+        private final long maxCacheSizeBytes;
+
+        CacheStats(long hits, long misses, long cachedBytesRead, long networkBytesRead,
+                   long cacheSizeBytes, long maxCacheSizeBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.cachedBytesRead = cachedBytesRead;
+            this.networkBytesRead = networkBytesRead;
+            this.cacheSizeBytes = cacheSizeBytes;
+            this.maxCacheSizeBytes = maxCacheSizeBytes;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getCachedBytesRead() { return cachedBytesRead; }
+        public long getNetworkBytesRead() { return networkBytesRead; }
+        public long getCacheSizeBytes() { return cacheSizeBytes; }
+        public long getMaxCacheSizeBytes() { return maxCacheSizeBytes; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses
+                    + ", cachedBytesRead=" + cachedBytesRead + ", networkBytesRead=" + networkBytesRead
+                    + ", size=" + cacheSizeBytes + "/" + maxCacheSizeBytes;
+        }
+    }
+}
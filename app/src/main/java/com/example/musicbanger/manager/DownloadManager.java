@@ -0,0 +1,360 @@
+package com.example.musicbanger.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import com.example.musicbanger.api.MusicApiService;
+import com.example.musicbanger.database.MusicDatabase;
+import com.example.musicbanger.database.dao.DownloadDao;
+import com.example.musicbanger.database.dao.PlaylistDao;
+import com.example.musicbanger.database.entities.DownloadEntity;
+import com.example.musicbanger.database.entities.TrackEntity;
+import com.example.musicbanger.model.Track;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Tải nhạc về máy để nghe offline.
+ * Hàng đợi nằm trong bảng downloads (sống sót qua khi app bị tắt), chạy tối đa MAX_PARALLEL job cùng lúc,
+ * tải tiếp phần còn thiếu bằng HTTP Range và không vượt quá quota dung lượng người dùng đặt.
+ * Playlist bật "offline" được đồng bộ tự động: thêm bài thì tải, bỏ bài / tắt offline thì xóa file.
+ */
+public class DownloadManager {
+    private static final String TAG = "DownloadManager";
+    private static final String DOWNLOAD_DIR = "downloads";
+    private static final String PREFS_NAME = "download_prefs";
+    private static final String KEY_QUOTA_MB = "quota_mb";
+    private static final String KEY_WIFI_ONLY = "wifi_only";
+    public static final int DEFAULT_QUOTA_MB = 1024;
+
+    private static final int MAX_PARALLEL = 2;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long PROGRESS_INTERVAL_BYTES = 256 * 1024;
+
+    private static DownloadManager instance;
+
+    private final Context context;
+    private final MusicDatabase database;
+    private final DownloadDao downloadDao;
+    private final PlaylistDao playlistDao;
+    private final File downloadDir;
+    private final OkHttpClient client;
+
+    // dispatcher: mọi thao tác với hàng đợi chạy tuần tự; workers: tải file song song
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+    private final ExecutorService workers = Executors.newFixedThreadPool(MAX_PARALLEL);
+    private final Set<String> active = new HashSet<>(); // Chỉ truy cập trên dispatcher
+    private final Set<String> cancelled = ConcurrentHashMap.newKeySet();
+
+    // trackId -> file đã tải xong, để MusicService tra cứu O(1) trên main thread
+    private final Map<String, String> localFiles = new ConcurrentHashMap<>();
+
+    private DownloadManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.database = MusicDatabase.getInstance(this.context);
+        this.downloadDao = database.downloadDao();
+        this.playlistDao = database.playlistDao();
+        this.downloadDir = new File(this.context.getFilesDir(), DOWNLOAD_DIR);
+        this.client = MusicApiService.getMediaClient();
+
+        dispatcher.execute(this::restore);
+
+        // Playlist offline thay đổi (thêm / bớt bài, bật / tắt offline) -> đồng bộ hàng đợi
+        downloadDao.observeOfflineChanges().observeForever(changes -> {
+            if (changes != null && changes > 0) {
+                dispatcher.execute(this::syncOfflinePlaylists);
+            }
+        });
+
+        // Có mạng (hoặc chuyển sang Wi-Fi) thì chạy tiếp hàng đợi
+        ConnectivityManager connectivity =
+                (ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity != null) {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network,
+                                                  @NonNull NetworkCapabilities capabilities) {
+                    dispatcher.execute(DownloadManager.this::pump);
+                }
+            });
+        }
+    }
+
+    public static void initialize(Context context) {
+        if (instance == null) {
+            instance = new DownloadManager(context);
+        }
+    }
+
+    public static DownloadManager getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("DownloadManager must be initialized first. Call initialize() in your Application class.");
+        }
+        return instance;
+    }
+
+    // ========== PUBLIC API ==========
+
+    // Bật / tắt "Tải xuống để nghe offline" cho playlist
+    public void setPlaylistOffline(String playlistId, boolean offline) {
+        dispatcher.execute(() -> downloadDao.setPlaylistOffline(playlistId, offline));
+    }
+
+    public LiveData<Boolean> observePlaylistOffline(String playlistId) {
+        return downloadDao.observePlaylistOffline(playlistId);
+    }
+
+    public LiveData<Integer> observeDownloadedCount(String playlistId) {
+        return downloadDao.observeDownloadedCount(playlistId);
+    }
+
+    // File đã tải xong của bài hát, null nếu chưa có
+    public File getLocalFile(Track track) {
+        if (track == null || track.getId() == null) return null;
+        String path = localFiles.get(track.getId());
+        return path != null ? new File(path) : null;
+    }
+
+    public int getQuotaMb() {
+        return prefs().getInt(KEY_QUOTA_MB, DEFAULT_QUOTA_MB);
+    }
+
+    public void setQuotaMb(int quotaMb) {
+        prefs().edit().putInt(KEY_QUOTA_MB, Math.max(64, quotaMb)).apply();
+        // Quota tăng: thử lại các bài đang chờ dung lượng
+        dispatcher.execute(() -> {
+            downloadDao.requeueQuotaExceeded();
+            pump();
+        });
+    }
+
+    public boolean isWifiOnly() {
+        return prefs().getBoolean(KEY_WIFI_ONLY, true);
+    }
+
+    public void setWifiOnly(boolean wifiOnly) {
+        prefs().edit().putBoolean(KEY_WIFI_ONLY, wifiOnly).apply();
+        dispatcher.execute(this::pump);
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // ========== HÀNG ĐỢI (chạy trên dispatcher) ==========
+
+    private void restore() {
+        try {
+            int interrupted = downloadDao.resetInterruptedDownloads();
+            for (DownloadEntity download : downloadDao.getCompletedDownloads()) {
+                if (download.filePath != null && new File(download.filePath).exists()) {
+                    localFiles.put(download.trackId, download.filePath);
+                } else {
+                    downloadDao.requeue(download.trackId); // File bị xóa ngoài app
+                }
+            }
+            Log.d(TAG, "Restored " + localFiles.size() + " downloads, " + interrupted + " interrupted");
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring downloads: " + e.getMessage());
+        }
+        pump();
+    }
+
+    private void syncOfflinePlaylists() {
+        try {
+            boolean freed = false;
+            for (DownloadEntity download : downloadDao.getUnneededDownloads()) {
+                deleteDownload(download);
+                freed = true;
+            }
+
+            if (!downloadDir.exists() && !downloadDir.mkdirs()) {
+                Log.e(TAG, "Cannot create download directory");
+                return;
+            }
+            List<TrackEntity> missing = downloadDao.getMissingOfflineTracks();
+            for (TrackEntity track : missing) {
+                String url = track.downloadUrl != null ? track.downloadUrl : track.streamUrl;
+                if (url == null) continue;
+                File file = new File(downloadDir, track.id.replaceAll("[^A-Za-z0-9_-]", "_") + ".mp3");
+                downloadDao.insertDownload(new DownloadEntity(track.id, url, file.getAbsolutePath()));
+            }
+
+            if (freed) {
+                downloadDao.requeueQuotaExceeded();
+            }
+            Log.d(TAG, "Offline sync: " + missing.size() + " new downloads");
+        } catch (Exception e) {
+            Log.e(TAG, "Error syncing offline playlists: " + e.getMessage());
+        }
+        pump();
+    }
+
+    private void deleteDownload(DownloadEntity download) {
+        cancelled.add(download.trackId);
+        localFiles.remove(download.trackId);
+        if (download.filePath != null) {
+            deleteFile(new File(download.filePath));
+            deleteFile(new File(download.filePath + ".part"));
+        }
+        // Xóa playlist bỏ qua bài còn bản tải: giờ hết bản tải thì dọn luôn dòng tracks mồ côi
+        database.runInTransaction(() -> {
+            downloadDao.deleteDownload(download.trackId);
+            playlistDao.deleteTrackIfOrphan(download.trackId);
+        });
+    }
+
+    // Giao job mới cho workers cho tới khi đủ MAX_PARALLEL
+    private void pump() {
+        if (!canDownloadNow()) return;
+
+        try {
+            int slots = MAX_PARALLEL - active.size();
+            if (slots <= 0) return;
+
+            for (DownloadEntity job : downloadDao.getQueuedDownloads(slots)) {
+                if (!active.add(job.trackId)) continue;
+                cancelled.remove(job.trackId);
+                downloadDao.setStatus(job.trackId, DownloadEntity.STATUS_DOWNLOADING, System.currentTimeMillis());
+                workers.execute(() -> {
+                    download(job);
+                    dispatcher.execute(() -> {
+                        active.remove(job.trackId);
+                        pump();
+                    });
+                });
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error scheduling downloads: " + e.getMessage());
+        }
+    }
+
+    private boolean canDownloadNow() {
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) return false;
+
+        NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        if (capabilities == null || !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)) {
+            return false;
+        }
+        return !isWifiOnly() || !connectivity.isActiveNetworkMetered();
+    }
+
+    // ========== WORKER ==========
+
+    private void download(DownloadEntity job) {
+        File file = new File(job.filePath);
+        File partial = new File(job.filePath + ".part");
+        long existing = partial.exists() ? partial.length() : 0;
+        long quotaBytes = getQuotaMb() * 1024L * 1024L;
+
+        Request.Builder request = new Request.Builder().url(job.url);
+        if (existing > 0) {
+            request.header("Range", "bytes=" + existing + "-");
+        }
+
+        try (Response response = client.newCall(request.build()).execute()) {
+            if (response.code() == 416) {
+                // File .part không khớp với server nữa: tải lại từ đầu ở lần sau
+                deleteFile(partial);
+                throw new IOException("Range not satisfiable");
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+
+            // 206 = server chấp nhận Range, 200 = phải tải lại từ đầu
+            boolean resumed = response.code() == 206;
+            if (!resumed) {
+                existing = 0;
+            }
+            ResponseBody body = response.body();
+            long total = body.contentLength() >= 0 ? existing + body.contentLength() : -1;
+
+            // Dung lượng của các bản tải khác (trừ phần của chính job này)
+            long usedByOthers = downloadDao.getUsedBytes() - Math.max(job.bytesDownloaded, Math.max(job.totalBytes, 0));
+            if (total > 0 && usedByOthers + total > quotaBytes) {
+                markQuotaExceeded(job, partial);
+                return;
+            }
+            downloadDao.updateProgress(job.trackId, existing, total, System.currentTimeMillis());
+
+            long downloaded = existing;
+            try (InputStream in = body.byteStream();
+                 FileOutputStream out = new FileOutputStream(partial, resumed)) {
+                byte[] buffer = new byte[64 * 1024];
+                long lastSaved = downloaded;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (cancelled.contains(job.trackId)) {
+                        Log.d(TAG, "Download cancelled: " + job.trackId);
+                        return;
+                    }
+                    out.write(buffer, 0, read);
+                    downloaded += read;
+
+                    if (total < 0 && usedByOthers + downloaded > quotaBytes) {
+                        markQuotaExceeded(job, partial);
+                        return;
+                    }
+                    if (downloaded - lastSaved >= PROGRESS_INTERVAL_BYTES) {
+                        downloadDao.updateProgress(job.trackId, downloaded, total, System.currentTimeMillis());
+                        lastSaved = downloaded;
+                    }
+                }
+                out.getFD().sync();
+            }
+
+            if (!partial.renameTo(file)) {
+                throw new IOException("Cannot move " + partial + " to " + file);
+            }
+            if (cancelled.contains(job.trackId)) {
+                deleteFile(file);
+                return;
+            }
+            downloadDao.markCompleted(job.trackId, downloaded, System.currentTimeMillis());
+            localFiles.put(job.trackId, file.getAbsolutePath());
+            Log.d(TAG, "Downloaded " + job.trackId + " (" + (downloaded / 1024) + " KB)");
+        } catch (IOException e) {
+            // Giữ file .part để lần sau tải tiếp bằng Range
+            int status = job.attempts + 1 >= MAX_ATTEMPTS
+                    ? DownloadEntity.STATUS_FAILED : DownloadEntity.STATUS_QUEUED;
+            Log.w(TAG, "Download failed for " + job.trackId + " (attempt " + (job.attempts + 1) + "): " + e.getMessage());
+            if (!cancelled.contains(job.trackId)) {
+                downloadDao.recordFailure(job.trackId, status, System.currentTimeMillis());
+            }
+        }
+    }
+
+    private void markQuotaExceeded(DownloadEntity job, File partial) {
+        Log.w(TAG, "Download quota exceeded, pausing " + job.trackId);
+        deleteFile(partial);
+        downloadDao.updateProgress(job.trackId, 0, -1, System.currentTimeMillis());
+        downloadDao.setStatus(job.trackId, DownloadEntity.STATUS_QUOTA_EXCEEDED, System.currentTimeMillis());
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.musicbanger.manager;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import com.example.musicbanger.database.MusicDatabase;
+import com.example.musicbanger.database.converters.TrackCodec;
+import com.example.musicbanger.database.dao.FeedCacheDao;
+import com.example.musicbanger.database.entities.FeedCacheEntity;
+import com.example.musicbanger.model.Track;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưu response Jamendo thành công gần nhất vào Room (stale-while-revalidate):
+ * màn hình hiển thị ngay dữ liệu đã lưu, rồi mới gọi mạng làm mới ở nền.
+ * Khi mất mạng vẫn còn feed / kết quả tìm kiếm lần trước để hiển thị.
+ */
+public class FeedCacheManager {
+    private static final String TAG = "FeedCacheManager";
+
+    public static final String KEY_HOME = "home";
+    private static final String GENRE_PREFIX = "genre:";
+    private static final String SEARCH_PREFIX = "search:";
+
+    // Dữ liệu mới hơn FRESH_MS thì không cần gọi mạng làm mới
+    private static final long FRESH_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+    private static final int MAX_SEARCH_ENTRIES = 100;
+
+    public interface FeedCallback {
+        // tracks = null nếu chưa có dữ liệu cho khóa này
+        void onFeedLoaded(@Nullable List<Track> tracks, long fetchedAt);
+    }
+
+    private static FeedCacheManager instance;
+
+    private final FeedCacheDao feedDao;
+    private final ExecutorService dbExecutor = MusicDatabase.getDatabaseExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private FeedCacheManager(Context context) {
+        this.feedDao = MusicDatabase.getInstance(context.getApplicationContext()).feedCacheDao();
+        dbExecutor.execute(() -> {
+            try {
+                int removed = feedDao.deleteOlderThan(System.currentTimeMillis() - MAX_AGE_MS);
+                if (removed > 0) {
+                    Log.d(TAG, "Removed " + removed + " expired feeds");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error pruning feed cache", e);
+            }
+        });
+    }
+
+    public static void initialize(Context context) {
+        if (instance == null) {
+            instance = new FeedCacheManager(context);
+        }
+    }
+
+    public static FeedCacheManager getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("FeedCacheManager must be initialized first. Call initialize() in your Application class.");
+        }
+        return instance;
+    }
+
+    // ========== KHÓA ==========
+
+    public static String genreKey(String genre) {
+        return GENRE_PREFIX + genre.toLowerCase(Locale.ROOT);
+    }
+
+    public static String searchKey(String query) {
+        return SEARCH_PREFIX + query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isFresh(long fetchedAt) {
+        return System.currentTimeMillis() - fetchedAt < FRESH_MS;
+    }
+
+    // ========== ĐỌC / GHI ==========
+
+    // Đọc trên executor DB, callback trên main thread
+    public void getFeed(String key, FeedCallback callback) {
+        dbExecutor.execute(() -> {
+            List<Track> tracks = null;
+            long fetchedAt = 0;
+            try {
+                FeedCacheEntity feed = feedDao.getFeed(key);
+                if (feed != null && feed.tracksData != null) {
+                    tracks = TrackCodec.decodeList(feed.tracksData);
+                    fetchedAt = feed.fetchedAt;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading feed " + key, e);
+            }
+            List<Track> result = tracks;
+            long resultFetchedAt = fetchedAt;
+            mainHandler.post(() -> callback.onFeedLoaded(result, resultFetchedAt));
+        });
+    }
+
+    public void saveFeed(String key, List<Track> tracks) {
+        if (tracks == null || tracks.isEmpty()) return;
+        List<Track> copy = new ArrayList<>(tracks);
+        dbExecutor.execute(() -> {
+            try {
+                feedDao.upsertFeed(new FeedCacheEntity(key, TrackCodec.encodeList(copy),
+                        System.currentTimeMillis()));
+                if (key.startsWith(SEARCH_PREFIX)) {
+                    feedDao.trimFeeds(SEARCH_PREFIX, MAX_SEARCH_ENTRIES);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving feed " + key, e);
+            }
+        });
+    }
+}
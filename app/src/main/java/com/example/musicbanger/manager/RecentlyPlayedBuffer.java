@@ -0,0 +1,188 @@
+package com.example.musicbanger.manager;
+
+import android.content.Context;
+import android.util.Log;
+import com.example.musicbanger.database.dao.PlaylistDao;
+import com.example.musicbanger.database.entities.TrackEntity;
+import com.example.musicbanger.model.Track;
+import com.google.gson.Gson;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bộ đệm ghi sau cho "Nghe gần đây".
+ * Các lượt nghe được gộp trong bộ nhớ (bỏ trùng, giữ tối đa maxTracks bài) rồi ghi xuống Room
+ * trong 1 transaction khi hết hẹn giờ hoặc khi app chuyển xuống nền.
+ * Mỗi lượt nghe được ghi trước vào file journal nên crash giữa chừng cũng không mất dữ liệu:
+ * lần mở app sau journal được đọc lại và ghi bù.
+ */
+class RecentlyPlayedBuffer {
+    private static final String TAG = "RecentlyPlayedBuffer";
+    private static final String JOURNAL_NAME = "recently_played.journal";
+    private static final long FLUSH_DELAY_SECONDS = 30;
+
+    private final PlaylistDao playlistDao;
+    private final String playlistId;
+    private final int maxTracks;
+    private final File journal;
+    private final Gson gson = new Gson();
+
+    // Mọi thao tác (journal, bộ đệm, flush) chạy tuần tự trên 1 luồng nên không cần khóa
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Bài cũ trước, bài mới nhất ở cuối; key = trackId để bỏ trùng
+    private final LinkedHashMap<String, Track> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private int journalLines = 0;
+
+    RecentlyPlayedBuffer(Context context, PlaylistDao playlistDao, String playlistId, int maxTracks) {
+        this.playlistDao = playlistDao;
+        this.playlistId = playlistId;
+        this.maxTracks = maxTracks;
+        this.journal = new File(context.getFilesDir(), JOURNAL_NAME);
+
+        executor.execute(this::recoverJournal);
+    }
+
+    void add(Track track) {
+        if (track == null || track.getId() == null) return;
+
+        executor.execute(() -> {
+            appendToJournal(track);
+            putPending(track);
+            scheduleFlush();
+        });
+    }
+
+    // Ghi ngay những gì đang chờ (app xuống nền, service bị hủy)
+    void flush() {
+        executor.execute(this::flushNow);
+    }
+
+    private void putPending(Track track) {
+        pending.remove(track.getId());
+        pending.put(track.getId(), track);
+
+        // Chỉ giữ maxTracks bài mới nhất, bài cũ hơn đằng nào cũng bị cắt khỏi playlist
+        Iterator<String> iterator = pending.keySet().iterator();
+        while (pending.size() > maxTracks && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (scheduledFlush == null || scheduledFlush.isDone()) {
+            scheduledFlush = executor.schedule(this::flushNow, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void flushNow() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) return;
+
+        List<TrackEntity> tracks = new ArrayList<>(pending.size());
+        for (Track track : pending.values()) {
+            tracks.add(TrackEntity.fromTrack(track));
+        }
+
+        try {
+            playlistDao.recordRecentlyPlayed(playlistId, tracks, maxTracks);
+            pending.clear();
+            clearJournal();
+            Log.d(TAG, "Flushed " + tracks.size() + " recently played tracks");
+        } catch (Exception e) {
+            // Giữ lại bộ đệm và journal, thử lại ở lần hẹn giờ sau
+            Log.e(TAG, "Error flushing recently played: " + e.getMessage());
+            scheduleFlush();
+        }
+    }
+
+    // ========== JOURNAL ==========
+
+    private void appendToJournal(Track track) {
+        // Journal phình to khi flush lỗi liên tục: viết lại gọn từ bộ đệm
+        if (journalLines >= maxTracks * 2) {
+            rewriteJournal();
+        }
+
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write((gson.toJson(track) + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+            journalLines++;
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing journal: " + e.getMessage());
+        }
+    }
+
+    private void rewriteJournal() {
+        File temp = new File(journal.getParentFile(), JOURNAL_NAME + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            for (Track track : pending.values()) {
+                writer.write(gson.toJson(track));
+                writer.write("\n");
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Error rewriting journal: " + e.getMessage());
+            return;
+        }
+
+        if (temp.renameTo(journal)) {
+            journalLines = pending.size();
+        }
+    }
+
+    private void clearJournal() {
+        if (journal.exists() && !journal.delete()) {
+            Log.w(TAG, "Could not delete journal");
+        }
+        journalLines = 0;
+    }
+
+    private void recoverJournal() {
+        if (!journal.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                journalLines++;
+                try {
+                    Track track = gson.fromJson(line, Track.class);
+                    if (track != null && track.getId() != null) {
+                        putPending(track);
+                    }
+                } catch (Exception e) {
+                    // Dòng cuối có thể bị cắt ngang khi crash, bỏ qua
+                    Log.w(TAG, "Skipping corrupt journal line");
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading journal: " + e.getMessage());
+        }
+
+        Log.d(TAG, "Recovered " + pending.size() + " recently played tracks from journal");
+        flushNow();
+    }
+}
@@ -1,35 +1,80 @@
 package com.example.musicbanger.manager;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 import com.example.musicbanger.database.MusicDatabase;
+import com.example.musicbanger.database.converters.TrackCodec;
 import com.example.musicbanger.database.dao.FavoriteDao;
+import com.example.musicbanger.database.dao.PlayHistoryDao;
 import com.example.musicbanger.database.dao.PlaylistDao;
+import com.example.musicbanger.database.dao.TrackDao;
 import com.example.musicbanger.database.entities.FavoriteTrackEntity;
+import com.example.musicbanger.database.entities.PlayHistoryEntity;
 import com.example.musicbanger.database.entities.PlaylistEntity;
+import com.example.musicbanger.database.entities.TrackEntity;
+import com.example.musicbanger.database.entities.TrackPlayCount;
 import com.example.musicbanger.model.Playlist;
+import com.example.musicbanger.model.PlaylistSummary;
 import com.example.musicbanger.model.Track;
-import com.google.gson.Gson;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class UserPlaylistManager {
+    public static final String FAVORITES_PLAYLIST_ID = "favorites_default";
+    public static final String RECENTLY_PLAYED_PLAYLIST_ID = "recently_played_default";
+    private static final int MAX_RECENTLY_PLAYED = 50;
+
+    // Paging cho playlist lớn: 1 trang 50 bài, giữ tối đa 200 bài trong bộ nhớ
+    private static final int TRACK_PAGE_SIZE = 50;
+    private static final int MAX_PAGED_TRACKS = 200;
+
     private static UserPlaylistManager instance;
     private PlaylistDao playlistDao;
     private FavoriteDao favoriteDao;
-    private Gson gson;
+    private PlayHistoryDao playHistoryDao;
+    private TrackDao trackDao;
     private Playlist currentPlayingPlaylist;
-    private ExecutorService executor; // THÊM EXECUTOR ĐỂ CHẠY BACKGROUND TASKS
+    private ExecutorService executor; // THÊM EXECUTOR ĐỂ CHẠY BACKGROUND TASKS (ghi tuần tự)
+    private ExecutorService dbExecutor; // Executor giới hạn luồng của MusicDatabase cho các truy vấn đọc
+    private Handler mainHandler;
+    private RecentlyPlayedBuffer recentlyPlayedBuffer;
+
+    // ID các bài yêu thích, nạp 1 lần lúc khởi động rồi ghi song song với favoriteDao
+    private final Set<String> favoriteIds = ConcurrentHashMap.newKeySet();
+    private final MutableLiveData<Set<String>> favoriteIdsLiveData = new MutableLiveData<>(Collections.emptySet());
+    private volatile boolean favoritesLoaded = false;
 
     private UserPlaylistManager(Context context) {
         Context appContext = context.getApplicationContext();
         MusicDatabase database = MusicDatabase.getInstance(appContext);
         this.playlistDao = database.playlistDao();
         this.favoriteDao = database.favoriteDao();
-        this.gson = new Gson();
+        this.playHistoryDao = database.playHistoryDao();
+        this.trackDao = database.trackDao();
         this.executor = Executors.newSingleThreadExecutor(); // KHỞI TẠO EXECUTOR
+        this.dbExecutor = MusicDatabase.getDatabaseExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.recentlyPlayedBuffer = new RecentlyPlayedBuffer(appContext, playlistDao,
+                RECENTLY_PLAYED_PLAYLIST_ID, MAX_RECENTLY_PLAYED);
+        loadFavoriteIds();
     }
 
     public static void initialize(Context context) {
@@ -68,8 +113,8 @@ public class UserPlaylistManager {
         executor.execute(() -> {
             PlaylistEntity playlist = playlistDao.getPlaylistById(playlistId);
             if (playlist != null && !playlist.isDefault) {
-                playlist.name = newName;
-                playlistDao.updatePlaylist(playlist);
+                // Chỉ cập nhật cột name để không ghi đè trackCount / coverUrl
+                playlistDao.renamePlaylist(playlistId, newName);
             }
         });
     }
@@ -81,22 +126,8 @@ public class UserPlaylistManager {
                 if (playlist != null) {
                     android.util.Log.d("UserPlaylistManager", "Adding track to playlist: " + playlist.name);
 
-                    List<Track> tracks = com.example.musicbanger.database.converters.TrackListConverter.toTrackList(playlist.tracksJson);
-                    android.util.Log.d("UserPlaylistManager", "Current tracks: " + tracks.size());
-
-                    boolean exists = false;
-                    for (Track existingTrack : tracks) {
-                        if (existingTrack.getId().equals(track.getId())) {
-                            exists = true;
-                            break;
-                        }
-                    }
-
-                    if (!exists) {
-                        tracks.add(track);
-                        playlist.tracksJson = com.example.musicbanger.database.converters.TrackListConverter.fromTrackList(tracks);
-                        playlistDao.updatePlaylist(playlist);
-                        android.util.Log.d("UserPlaylistManager", "Track added successfully. New count: " + tracks.size());
+                    if (playlistDao.appendTrack(playlistId, TrackEntity.fromTrack(track))) {
+                        android.util.Log.d("UserPlaylistManager", "Track added successfully");
                     } else {
                         android.util.Log.d("UserPlaylistManager", "Track already exists in playlist");
                     }
@@ -108,62 +139,181 @@ public class UserPlaylistManager {
             }
         });
     }
+
     public void removeTrackFromPlaylist(String playlistId, Track track) {
         executor.execute(() -> {
-            PlaylistEntity playlist = playlistDao.getPlaylistById(playlistId);
-            if (playlist != null) {
-                List<Track> tracks = com.example.musicbanger.database.converters.TrackListConverter.toTrackList(playlist.tracksJson);
-
-                for (int i = 0; i < tracks.size(); i++) {
-                    if (tracks.get(i).getId().equals(track.getId())) {
-                        tracks.remove(i);
-                        break;
-                    }
-                }
+            playlistDao.removeTrack(playlistId, track.getId());
+        });
+    }
 
-                playlist.tracksJson = com.example.musicbanger.database.converters.TrackListConverter.fromTrackList(tracks);
-                playlistDao.updatePlaylist(playlist);
-            }
+    // Đặt bài hát ngay sau afterTrack (null = lên đầu playlist)
+    public void moveTrackInPlaylist(String playlistId, Track track, Track afterTrack) {
+        executor.execute(() -> {
+            playlistDao.moveTrackAfter(playlistId, track.getId(),
+                    afterTrack != null ? afterTrack.getId() : null);
         });
     }
 
-    // ========== GETTER METHODS - CẦN XỬ LÝ BẤT ĐỒNG BỘ ==========
+    // ========== BULK OPERATIONS ==========
+    // Mỗi thao tác chạy trong 1 transaction Room và gọi callback đúng 1 lần (trên main thread) cho cả lô.
+    // Playlist "Yêu thích" vẫn nên đi qua toggleFavorite để giữ bảng favorite_tracks đồng bộ.
 
-    public List<Playlist> getAllPlaylists() {
-        try {
-            List<PlaylistEntity> entities = playlistDao.getAllPlaylistsSync();
-            List<Playlist> playlists = new ArrayList<>();
+    public void addTracksToPlaylist(String playlistId, List<Track> tracks, BatchCallback callback) {
+        List<TrackEntity> entities = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            entities.add(TrackEntity.fromTrack(track));
+        }
+        runBatch("add tracks", () -> playlistDao.appendTracks(playlistId, entities), callback);
+    }
 
-            if (entities != null) {
-                for (PlaylistEntity entity : entities) {
-                    Playlist playlist = convertToPlaylist(entity);
-                    playlists.add(playlist);
-                }
+    public void removeTracksFromPlaylist(String playlistId, List<Track> tracks, BatchCallback callback) {
+        List<String> trackIds = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            trackIds.add(track.getId());
+        }
+        runBatch("remove tracks", () -> playlistDao.removeTracks(playlistId, trackIds), callback);
+    }
+
+    // Di chuyển bài ở vị trí fromIndex tới vị trí toIndex (chỉ số như trên danh sách hiển thị)
+    public void moveTrack(String playlistId, int fromIndex, int toIndex, BatchCallback callback) {
+        runBatch("move track",
+                () -> playlistDao.moveTrack(playlistId, fromIndex, toIndex) ? 1 : 0, callback);
+    }
+
+    public void replaceAllTracks(String playlistId, List<Track> tracks, BatchCallback callback) {
+        List<TrackEntity> entities = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            entities.add(TrackEntity.fromTrack(track));
+        }
+        runBatch("replace tracks", () -> playlistDao.replaceAllTracks(playlistId, entities), callback);
+    }
+
+    private void runBatch(String name, Callable<Integer> batch, BatchCallback callback) {
+        executor.execute(() -> {
+            boolean success;
+            int affected = 0;
+            try {
+                affected = batch.call();
+                success = true;
+                android.util.Log.d("UserPlaylistManager", "Batch " + name + ": " + affected + " tracks");
+            } catch (Exception e) {
+                success = false;
+                android.util.Log.e("UserPlaylistManager", "Error in batch " + name + ": " + e.getMessage());
             }
 
-            // DEBUG: Log số lượng playlist
-            android.util.Log.d("UserPlaylistManager", "Found " + playlists.size() + " playlists");
-            for (Playlist p : playlists) {
-                android.util.Log.d("UserPlaylistManager", "Playlist: " + p.getName() + " (" + p.getTrackCount() + " tracks)");
+            if (callback != null) {
+                boolean result = success;
+                int count = affected;
+                mainHandler.post(() -> callback.onBatchComplete(result, count));
             }
+        });
+    }
+
+    // ========== GETTER METHODS - CẦN XỬ LÝ BẤT ĐỒNG BỘ ==========
+    // Các hàm có callback đọc DB trên dbExecutor rồi trả kết quả về main thread.
+    // Các hàm đồng bộ (@WorkerThread) chỉ được gọi từ luồng nền: Room không cho truy vấn trên main thread.
+
+    // Danh sách playlist cho màn hình thư viện, tự cập nhật khi playlist thay đổi
+    public LiveData<List<PlaylistSummary>> observePlaylistSummaries() {
+        return playlistDao.observePlaylistSummaries();
+    }
+
+    public void getPlaylistSummaries(PlaylistSummariesCallback callback) {
+        dbExecutor.execute(() -> {
+            List<PlaylistSummary> summaries = getPlaylistSummaries();
+            mainHandler.post(() -> callback.onSummariesLoaded(summaries));
+        });
+    }
 
-            return playlists;
+    @WorkerThread
+    public List<PlaylistSummary> getPlaylistSummaries() {
+        try {
+            List<PlaylistSummary> summaries = playlistDao.getPlaylistSummariesSync();
+            return summaries != null ? summaries : new ArrayList<>();
         } catch (Exception e) {
             android.util.Log.e("UserPlaylistManager", "Error getting playlists: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    public void getPlaylistSummary(String playlistId, PlaylistSummaryCallback callback) {
+        dbExecutor.execute(() -> {
+            PlaylistSummary summary = playlistDao.getPlaylistSummary(playlistId);
+            mainHandler.post(() -> callback.onSummaryLoaded(summary));
+        });
+    }
+
+    public void getPlaylistById(String playlistId, PlaylistCallback callback) {
+        dbExecutor.execute(() -> {
+            Playlist playlist = getPlaylistById(playlistId);
+            mainHandler.post(() -> callback.onPlaylistLoaded(playlist));
+        });
+    }
+
+    @WorkerThread
     public Playlist getPlaylistById(String playlistId) {
         PlaylistEntity entity = playlistDao.getPlaylistById(playlistId);
         return entity != null ? convertToPlaylist(entity) : null;
     }
 
+    // Chỉ đọc thông tin playlist, không nạp danh sách bài hát
+    public void getPlaylistInfo(String playlistId, PlaylistCallback callback) {
+        dbExecutor.execute(() -> {
+            PlaylistEntity entity = playlistDao.getPlaylistById(playlistId);
+            Playlist playlist = null;
+            if (entity != null) {
+                playlist = new Playlist(entity.id, entity.name, entity.description);
+                playlist.setDefault(entity.isDefault);
+            }
+
+            Playlist result = playlist;
+            mainHandler.post(() -> callback.onPlaylistLoaded(result));
+        });
+    }
+
+    // :limit bài đầu tiên của playlist (ví dụ vài bài nghe gần nhất cho màn hình chính)
+    public void getFirstTracks(String playlistId, int limit, TracksCallback callback) {
+        dbExecutor.execute(() -> {
+            List<Track> tracks = new ArrayList<>();
+            for (TrackEntity entity : playlistDao.getFirstTracks(playlistId, limit)) {
+                tracks.add(entity.toTrack());
+            }
+            mainHandler.post(() -> callback.onTracksLoaded(tracks));
+        });
+    }
+
+    public LiveData<Integer> observeTrackCount(String playlistId) {
+        return playlistDao.observeTrackCount(playlistId);
+    }
+
+    /**
+     * Danh sách bài hát của playlist theo từng trang, đọc từ Room khi người dùng cuộn tới.
+     * Mỗi lần gọi tạo Pager mới; màn hình cần giữ kết quả qua đổi cấu hình
+     * (xem PlaylistDetailViewModel, cachedIn).
+     */
+    public LiveData<PagingData<Track>> getPlaylistTracksPaged(String playlistId) {
+        PagingConfig config = new PagingConfig(
+                TRACK_PAGE_SIZE,
+                TRACK_PAGE_SIZE,
+                true,
+                TRACK_PAGE_SIZE,
+                MAX_PAGED_TRACKS
+        );
+        Pager<Integer, TrackEntity> pager = new Pager<>(config, () -> playlistDao.getTracksPaged(playlistId));
+
+        MediatorLiveData<PagingData<Track>> tracks = new MediatorLiveData<>();
+        tracks.addSource(PagingLiveData.getLiveData(pager), pagingData ->
+                tracks.setValue(PagingDataTransforms.map(pagingData, dbExecutor, TrackEntity::toTrack)));
+        return tracks;
+    }
+
+    @WorkerThread
     public Playlist getFavoritesPlaylist() {
         PlaylistEntity entity = playlistDao.getPlaylistByName("Bài hát yêu thích");
         return entity != null ? convertToPlaylist(entity) : null;
     }
 
+    @WorkerThread
     public Playlist getRecentlyPlayedPlaylist() {
         PlaylistEntity entity = playlistDao.getPlaylistByName("Nghe gần đây");
         return entity != null ? convertToPlaylist(entity) : null;
@@ -172,56 +322,109 @@ public class UserPlaylistManager {
     // ========== FAVORITE OPERATIONS ==========
 
     public void toggleFavorite(Track track) {
+        toggleFavorite(track, null);
+    }
+
+    // callback nhận trạng thái mới (trên main thread) sau khi đã ghi xong
+    public void toggleFavorite(Track track, FavoriteCallback callback) {
         android.util.Log.d("UserPlaylistManager", "=== TOGGLE FAVORITE STARTED ===");
         android.util.Log.d("UserPlaylistManager", "Track: " + track.getTitle() + " (ID: " + track.getId() + ")");
 
+        if (!favoritesLoaded) {
+            // Chưa nạp xong: xếp sau loadFavoriteIds trên cùng executor
+            executor.execute(() -> toggleFavorite(track, callback));
+            return;
+        }
+
+        // Cập nhật bộ nhớ trước để UI thấy ngay, DB ghi sau trên executor
+        boolean wasFavorite = !favoriteIds.add(track.getId());
+        if (wasFavorite) {
+            favoriteIds.remove(track.getId());
+        }
+        publishFavoriteIds();
+        android.util.Log.d("UserPlaylistManager", "Current favorite status: " + wasFavorite);
+
         executor.execute(() -> {
             try {
-                android.util.Log.d("UserPlaylistManager", "Checking favorite status...");
-                boolean isFavorite = favoriteDao.isTrackFavorite(track.getId()) > 0;
-                android.util.Log.d("UserPlaylistManager", "Current favorite status: " + isFavorite);
-
-                if (isFavorite) {
+                if (wasFavorite) {
                     android.util.Log.d("UserPlaylistManager", "Removing from favorites...");
                     favoriteDao.removeFavoriteByTrackId(track.getId());
                     android.util.Log.d("UserPlaylistManager", "Removed from favorites table");
 
                     // Also remove from favorites playlist
-                    removeTrackFromPlaylist("favorites_default", track);
+                    removeTrackFromPlaylist(FAVORITES_PLAYLIST_ID, track);
                     android.util.Log.d("UserPlaylistManager", "Removed from favorites playlist");
                 } else {
                     android.util.Log.d("UserPlaylistManager", "Adding to favorites...");
-                    String trackJson = gson.toJson(track);
-                    android.util.Log.d("UserPlaylistManager", "Track JSON: " + trackJson);
-
-                    FavoriteTrackEntity favorite = new FavoriteTrackEntity(track.getId(), trackJson);
+                    FavoriteTrackEntity favorite = new FavoriteTrackEntity(track.getId(), TrackCodec.encode(track));
                     favoriteDao.addToFavorites(favorite);
                     android.util.Log.d("UserPlaylistManager", "Added to favorites table");
 
                     // Also add to favorites playlist
-                    addTrackToPlaylist("favorites_default", track);
+                    addTrackToPlaylist(FAVORITES_PLAYLIST_ID, track);
                     android.util.Log.d("UserPlaylistManager", "Added to favorites playlist");
                 }
 
                 android.util.Log.d("UserPlaylistManager", "=== TOGGLE FAVORITE COMPLETED ===");
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onFavoriteChecked(!wasFavorite));
+                }
             } catch (Exception e) {
                 android.util.Log.e("UserPlaylistManager", "Error in toggleFavorite: " + e.getMessage(), e);
+
+                // Ghi DB thất bại: trả bộ nhớ về trạng thái cũ
+                if (wasFavorite) {
+                    favoriteIds.add(track.getId());
+                } else {
+                    favoriteIds.remove(track.getId());
+                }
+                publishFavoriteIds();
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onFavoriteChecked(wasFavorite));
+                }
             }
         });
     }
 
+    // Tra cứu O(1) trong bộ nhớ, gọi được trên main thread
     public boolean isFavorite(Track track) {
-        return favoriteDao.isTrackFavorite(track.getId()) > 0;
+        return track != null && favoriteIds.contains(track.getId());
+    }
+
+    // Phát lại tập ID mỗi khi danh sách yêu thích thay đổi
+    public LiveData<Set<String>> observeFavoriteIds() {
+        return favoriteIdsLiveData;
+    }
+
+    private void loadFavoriteIds() {
+        // Chạy trên executor ghi nên mọi toggleFavorite sau đó đều thấy dữ liệu đã nạp
+        executor.execute(() -> {
+            try {
+                favoriteIds.addAll(favoriteDao.getAllFavoriteIds());
+                android.util.Log.d("UserPlaylistManager", "Loaded " + favoriteIds.size() + " favorite ids");
+            } catch (Exception e) {
+                android.util.Log.e("UserPlaylistManager", "Error loading favorites: " + e.getMessage());
+            }
+            favoritesLoaded = true;
+            publishFavoriteIds();
+        });
+    }
+
+    private void publishFavoriteIds() {
+        favoriteIdsLiveData.postValue(Collections.unmodifiableSet(new HashSet<>(favoriteIds)));
     }
 
+    @WorkerThread
     public List<Track> getFavoriteTracks() {
         List<FavoriteTrackEntity> favorites = favoriteDao.getAllFavoritesSync();
         List<Track> tracks = new ArrayList<>();
 
         if (favorites != null) {
             for (FavoriteTrackEntity favorite : favorites) {
-                Track track = gson.fromJson(favorite.trackJson, Track.class);
-                tracks.add(track);
+                Track track = TrackCodec.decode(favorite.trackData);
+                if (track != null) {
+                    tracks.add(track);
+                }
             }
         }
         return tracks;
@@ -229,20 +432,76 @@ public class UserPlaylistManager {
 
     // ========== RECENTLY PLAYED ==========
 
+    // Chỉ ghi vào bộ đệm, Room được cập nhật theo lô (xem RecentlyPlayedBuffer)
     public void addToRecentlyPlayed(Track track) {
-        executor.execute(() -> {
-            addTrackToPlaylist("recently_played_default", track);
+        recentlyPlayedBuffer.add(track);
+    }
 
-            PlaylistEntity recentlyPlayed = playlistDao.getPlaylistByName("Nghe gần đây");
-            if (recentlyPlayed != null) {
-                List<Track> tracks = com.example.musicbanger.database.converters.TrackListConverter.toTrackList(recentlyPlayed.tracksJson);
+    // Gọi khi app xuống nền hoặc service bị hủy để ghi ngay các lượt nghe đang chờ
+    public void flushRecentlyPlayed() {
+        recentlyPlayedBuffer.flush();
+    }
+
+    // ========== LOCAL SEARCH ==========
 
-                if (tracks.size() > 50) {
-                    tracks = tracks.subList(0, 50);
-                    recentlyPlayed.tracksJson = com.example.musicbanger.database.converters.TrackListConverter.fromTrackList(tracks);
-                    playlistDao.updatePlaylist(recentlyPlayed);
+    // Tìm trong các bài đã có trên máy (playlist, yêu thích, lịch sử) qua chỉ mục FTS
+    public void searchLocalTracks(String query, int limit, TracksCallback callback) {
+        dbExecutor.execute(() -> {
+            List<Track> tracks = new ArrayList<>();
+            try {
+                for (TrackEntity entity : trackDao.search(query, limit)) {
+                    tracks.add(entity.toTrack());
                 }
+            } catch (Exception e) {
+                android.util.Log.e("UserPlaylistManager", "Error searching local tracks: " + e.getMessage());
+            }
+            mainHandler.post(() -> callback.onTracksLoaded(tracks));
+        });
+    }
+
+    // ========== PLAY HISTORY ==========
+
+    // Mỗi lượt nghe là 1 dòng mới trong play_history (MusicService gọi khi bài hát kết thúc / bị chuyển)
+    public void recordPlay(Track track, long startedAt, long listenedMs, boolean completed) {
+        if (track == null || track.getId() == null) return;
+
+        executor.execute(() -> {
+            try {
+                playHistoryDao.recordPlay(TrackEntity.fromTrack(track),
+                        new PlayHistoryEntity(track.getId(), startedAt, listenedMs, completed));
+            } catch (Exception e) {
+                android.util.Log.e("UserPlaylistManager", "Error recording play: " + e.getMessage());
+            }
+        });
+    }
+
+    public void getRecentDistinctTracks(int limit, TracksCallback callback) {
+        dbExecutor.execute(() -> {
+            List<Track> tracks = new ArrayList<>();
+            for (TrackEntity entity : playHistoryDao.getRecentDistinctTracks(limit)) {
+                tracks.add(entity.toTrack());
+            }
+            mainHandler.post(() -> callback.onTracksLoaded(tracks));
+        });
+    }
+
+    // Các bài nghe nhiều nhất trong khoảng [from, to), nhiều nhất trước
+    public void getTopPlayedTracks(long from, long to, int limit, TracksCallback callback) {
+        dbExecutor.execute(() -> {
+            List<Track> tracks = new ArrayList<>();
+            for (TrackPlayCount row : playHistoryDao.getTopPlayed(from, to, limit)) {
+                tracks.add(row.track.toTrack());
             }
+            mainHandler.post(() -> callback.onTracksLoaded(tracks));
+        });
+    }
+
+    // Tổng số lượt nghe của bài và số lượt từ since trở đi
+    public void getPlayCount(Track track, long since, PlayCountCallback callback) {
+        dbExecutor.execute(() -> {
+            int total = playHistoryDao.getPlayCount(track.getId());
+            int recent = playHistoryDao.getPlayCountSince(track.getId(), since);
+            mainHandler.post(() -> callback.onPlayCountLoaded(total, recent));
         });
     }
 
@@ -254,8 +513,9 @@ public class UserPlaylistManager {
         playlist.setName(entity.name);
         playlist.setDescription(entity.description);
 
-        List<Track> tracks = com.example.musicbanger.database.converters.TrackListConverter.toTrackList(entity.tracksJson);
-        playlist.getTracks().addAll(tracks);
+        for (TrackEntity trackEntity : playlistDao.getTracksForPlaylist(entity.id)) {
+            playlist.getTracks().add(trackEntity.toTrack());
+        }
 
         return playlist;
     }
@@ -277,13 +537,38 @@ public class UserPlaylistManager {
         void onPlaylistsLoaded(List<Playlist> playlists);
     }
 
+    public interface PlaylistCallback {
+        void onPlaylistLoaded(Playlist playlist);
+    }
+
+    public interface PlaylistSummaryCallback {
+        void onSummaryLoaded(PlaylistSummary summary);
+    }
+
+    public interface PlaylistSummariesCallback {
+        void onSummariesLoaded(List<PlaylistSummary> summaries);
+    }
+
+    public interface TracksCallback {
+        void onTracksLoaded(List<Track> tracks);
+    }
+
+    public interface PlayCountCallback {
+        void onPlayCountLoaded(int total, int recent);
+    }
+
+    // success = false khi transaction bị rollback; affected = số bài được thêm / xóa / di chuyển
+    public interface BatchCallback {
+        void onBatchComplete(boolean success, int affected);
+    }
+
     // THÊM PHƯƠNG THỨC isFavorite VỚI CALLBACK
+    // Trả lời ngay từ bộ nhớ; chỉ chờ khi danh sách yêu thích chưa nạp xong lúc khởi động
     public void isFavorite(Track track, FavoriteCallback callback) {
-        executor.execute(() -> {
-            boolean isFavorite = favoriteDao.isTrackFavorite(track.getId()) > 0;
-            new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
-                callback.onFavoriteChecked(isFavorite);
-            });
-        });
+        if (favoritesLoaded) {
+            callback.onFavoriteChecked(isFavorite(track));
+            return;
+        }
+        executor.execute(() -> mainHandler.post(() -> callback.onFavoriteChecked(isFavorite(track))));
     }
 }
\ No newline at end of file
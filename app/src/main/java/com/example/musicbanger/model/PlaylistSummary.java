@@ -0,0 +1,27 @@
+package com.example.musicbanger.model;
+
+/**
+ * Thông tin rút gọn của playlist cho màn hình thư viện: không chứa danh sách bài hát.
+ * trackCount và coverUrl được PlaylistDao cập nhật dần mỗi khi playlist thay đổi.
+ */
+public class PlaylistSummary {
+    private final String id;
+    private final String name;
+    private final String description;
+    private final int trackCount;
+    private final String coverUrl;
+
+    public PlaylistSummary(String id, String name, String description, int trackCount, String coverUrl) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.trackCount = trackCount;
+        this.coverUrl = coverUrl;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public int getTrackCount() { return trackCount; }
+    public String getCoverUrl() { return coverUrl; }
+}
@@ -25,6 +25,9 @@ public class Track implements Parcelable {
     @SerializedName("duration")
     private int duration;
 
+    @SerializedName("downloadUrl")
+    private String downloadUrl; // File tải về đầy đủ (Jamendo audiodownload), có thể null
+
     // LOẠI BỎ CÁC FIELD URI - CHÚNG SẼ ĐƯỢC TÍNH TOÁN KHI CẦN
     // private Uri streamUri;
     // private Uri artworkUri;
@@ -35,12 +38,18 @@ public class Track implements Parcelable {
 
     public Track(String id, String title, String artistName, String albumName,
                  String streamUrl, String artworkUrl, int duration) {
+        this(id, title, artistName, albumName, streamUrl, artworkUrl, duration, null);
+    }
+
+    public Track(String id, String title, String artistName, String albumName,
+                 String streamUrl, String artworkUrl, int duration, String downloadUrl) {
         this.id = id;
         this.title = title;
         this.artist = new Artist(artistName);
         this.album = new Album(albumName, artworkUrl);
         this.streamUrl = streamUrl;
         this.duration = duration;
+        this.downloadUrl = downloadUrl;
     }
 
     // Getter methods - TÍNH TOÁN URI KHI CẦN
@@ -68,6 +77,10 @@ public class Track implements Parcelable {
 
     public int getDuration() { return duration; }
     public String getStreamUrl() { return streamUrl; }
+    public String getDownloadUrl() { return downloadUrl; }
+    public String getArtworkUrl() {
+        return album != null ? album.getCover() : null;
+    }
 
     // Inner classes
     public static class Artist implements Parcelable {
@@ -159,6 +172,7 @@ public class Track implements Parcelable {
         duration = in.readInt();
         artist = in.readParcelable(Artist.class.getClassLoader());
         album = in.readParcelable(Album.class.getClassLoader());
+        downloadUrl = in.readString();
     }
 
     public static final Creator<Track> CREATOR = new Creator<Track>() {
@@ -186,6 +200,7 @@ public class Track implements Parcelable {
         dest.writeInt(duration);
         dest.writeParcelable(artist, flags);
         dest.writeParcelable(album, flags);
+        dest.writeString(downloadUrl);
     }
 
     @Override
@@ -9,12 +9,16 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Binder;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.v4.media.MediaBrowserCompat;
 import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.MediaSessionCompat;
@@ -28,19 +32,25 @@ import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.media.session.MediaButtonReceiver;
 
-import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.target.CustomTarget;
-import com.bumptech.glide.request.transition.Transition;
 import com.example.musicbanger.NowPlayingActivity;
 import com.example.musicbanger.R;
+import com.example.musicbanger.manager.ArtworkManager;
+import com.example.musicbanger.manager.AudioCacheManager;
+import com.example.musicbanger.manager.DownloadManager;
 import com.example.musicbanger.manager.UserPlaylistManager;
 import com.example.musicbanger.model.Playlist;
 import com.example.musicbanger.model.Track;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.PlaybackException;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -51,14 +61,50 @@ import android.app.PendingIntent;
 public class MusicService extends MediaBrowserServiceCompat {
     private static final String TAG = "MusicService";
     private final IBinder binder = new LocalBinder();
-    private ExoPlayer player;
+    // ExoPlayer sống trên luồng phát riêng (playbackThread): UI nặng ở main thread không làm
+    // trễ chuyển trạng thái hay hụt buffer âm thanh. Mọi lệnh tới player đi qua runOnPlayer().
+    private volatile ExoPlayer player;
+    private HandlerThread playbackThread;
+    private Handler playerHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Ảnh chụp trạng thái player cho main thread, ghi lại sau mỗi lượt onEvents
+    private volatile boolean playingSnapshot;
+    private volatile int playbackStateSnapshot = Player.STATE_IDLE;
+    private volatile long positionSnapshot;
+    private volatile long durationSnapshot = C.TIME_UNSET;
+    private volatile long snapshotRealtime; // SystemClock.elapsedRealtime() lúc chụp
+
     private PlaylistManager playlist = new PlaylistManager();
+    private final PlayHistoryTracker playHistory = new PlayHistoryTracker();
+    private Track transitionTrack; // Bài của lần onMediaItemTransition gần nhất
+    private QueuePrefetcher prefetcher;
+    private PositionTicker positionTicker;
+
+    // Bài đã tải offline đọc thẳng từ file, bài stream đi qua cache trên đĩa
+    private MediaSource.Factory streamSourceFactory;
+    private MediaSource.Factory localSourceFactory;
 
     // Thêm các constant
     private static final String CHANNEL_ID = "music_player_channel";
     private static final int NOTIFICATION_ID = 1;
     private MediaSessionCompat mediaSession;
 
+    // Cập nhật notification / MediaSession được gộp theo khung hình và chỉ đẩy khi nội dung đổi
+    private static final long UPDATE_INTERVAL_MS = 16;
+    private static final long SESSION_POSITION_TOLERANCE_MS = 500;
+    private boolean sessionUpdatePending;   // Luồng phát
+    private Track sessionTrack;
+    private int sessionState = -1;
+    private long sessionPosition;
+    private long sessionRealtime;
+    private boolean notificationUpdatePending; // Main thread
+    private String postedNotificationKey;
+    private String artworkTrackId; // Bài của artworkBitmap (hoặc của lượt tải đang chạy)
+    private Bitmap artworkBitmap;
+    private CustomTarget<Bitmap> artworkTarget;
+    private Bitmap fallbackArtwork;
+
     public MusicService() {
         super();
     }
@@ -68,7 +114,13 @@ public class MusicService extends MediaBrowserServiceCompat {
         super.onCreate();
         Log.d(TAG, "MusicService onCreate");
         try {
-            initializePlayer();
+            prefetcher = new QueuePrefetcher(this);
+            playbackThread = new HandlerThread("MusicPlayback", Process.THREAD_PRIORITY_AUDIO);
+            playbackThread.start();
+            playerHandler = new Handler(playbackThread.getLooper());
+            positionTicker = new PositionTicker(this, playerHandler, mainHandler);
+            // Tạo player ngay trên luồng phát; các lệnh post sau đó luôn chạy sau bước này
+            playerHandler.post(this::initializePlayer);
             initializeMediaSession();
             initializeNotificationChannel();
             Log.d(TAG, "MusicService initialized successfully");
@@ -106,10 +158,40 @@ public class MusicService extends MediaBrowserServiceCompat {
     private void initializePlayer() {
         try {
             Log.d(TAG, "Initializing ExoPlayer...");
-            player = new ExoPlayer.Builder(this).build();
-            Log.d(TAG, "ExoPlayer initialized successfully");
+            // Stream đi qua cache trên đĩa: nghe lại bài cũ không cần tải lại từ mạng
+            streamSourceFactory = new DefaultMediaSourceFactory(
+                    AudioCacheManager.getInstance().getDataSourceFactory());
+            localSourceFactory = new DefaultMediaSourceFactory(new DefaultDataSource.Factory(this));
+            ExoPlayer exoPlayer = new ExoPlayer.Builder(this)
+                    .setMediaSourceFactory(streamSourceFactory)
+                    .setLooper(playbackThread.getLooper())
+                    .build();
+            Log.d(TAG, "ExoPlayer initialized successfully on " + playbackThread.getName());
+
+            // Callback chạy trên luồng phát: chỉ những gì UI cần mới được chuyển về main thread
+            exoPlayer.addListener(new Player.Listener() {
+                @Override
+                public void onEvents(@NonNull Player eventPlayer, @NonNull Player.Events events) {
+                    updateSnapshot(eventPlayer);
+                    // play()/pause() khi đang READY chỉ bắn EVENT_IS_PLAYING_CHANGED; kể cả dừng / phát
+                    // không do người dùng (mất audio focus, rút tai nghe, buffer)
+                    if (events.contains(Player.EVENT_IS_PLAYING_CHANGED)) {
+                        boolean isPlaying = eventPlayer.isPlaying();
+                        playHistory.onIsPlayingChanged(isPlaying);
+                        notifyPlaybackStateChanged(isPlaying);
+                        updateMediaSession();
+                        updateNotification();
+                    }
+                    if (events.contains(Player.EVENT_POSITION_DISCONTINUITY)) {
+                        eventBus.publishPosition(eventPlayer.getCurrentPosition());
+                    }
+                    // Bắt đầu / dừng / canh lại nhịp đẩy vị trí cho UI
+                    if (events.containsAny(Player.EVENT_IS_PLAYING_CHANGED,
+                            Player.EVENT_POSITION_DISCONTINUITY, Player.EVENT_MEDIA_ITEM_TRANSITION)) {
+                        positionTicker.restart();
+                    }
+                }
 
-            player.addListener(new Player.Listener() {
                 @Override
                 public void onPlaybackStateChanged(int playbackState) {
                     Log.d(TAG, "Playback state changed: " + playbackState);
@@ -121,30 +203,17 @@ public class MusicService extends MediaBrowserServiceCompat {
                     boolean isPlaying = player.isPlaying();
                     notifyPlaybackStateChanged(isPlaying);
 
+                    // Chỉ xảy ra khi phát hết hàng đợi mà không lặp lại
                     if (playbackState == Player.STATE_ENDED) {
+                        playHistory.onTrackEnded();
                         saveToRecentlyPlayed();
-                        handleTrackEnded();
                     }
                 }
 
                 @Override
-                public void onIsPlayingChanged(boolean isPlaying) {
-                    Log.d(TAG, "Is playing changed: " + isPlaying);
-                    try {
-                        updateMediaSession();
-                        updateNotification();
-                        notifyPlaybackStateChanged(isPlaying);
-
-                        // LƯU BÀI HÁT VÀO LỊCH SỬ KHI BẮT ĐẦU PHÁT
-                        if (isPlaying) {
-                            Track currentTrack = getCurrentTrack();
-                            if (currentTrack != null) {
-                                UserPlaylistManager.getInstance().addToRecentlyPlayed(currentTrack);
-                            }
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error in isPlaying changed: " + e.getMessage(), e);
-                    }
+                public void onMediaItemTransition(@Nullable MediaItem mediaItem, int reason) {
+                    if (player == null) return;
+                    handleMediaItemTransition(reason);
                 }
 
                 @Override
@@ -152,12 +221,39 @@ public class MusicService extends MediaBrowserServiceCompat {
                     Log.e(TAG, "Player error: " + error.getMessage(), error);
                 }
             });
+            player = exoPlayer;
 
         } catch (Exception e) {
             Log.e(TAG, "Error initializing player: " + e.getMessage(), e);
         }
     }
 
+    private void updateSnapshot(Player source) {
+        playingSnapshot = source.isPlaying();
+        playbackStateSnapshot = source.getPlaybackState();
+        positionSnapshot = source.getCurrentPosition();
+        durationSnapshot = source.getDuration();
+        snapshotRealtime = SystemClock.elapsedRealtime();
+    }
+
+    // Lệnh tới player luôn chạy trên luồng phát, theo đúng thứ tự được gọi
+    private void runOnPlayer(Runnable action) {
+        if (playerHandler == null) return;
+        if (Looper.myLooper() == playerHandler.getLooper()) {
+            action.run();
+        } else {
+            playerHandler.post(action);
+        }
+    }
+
+    private void runOnMain(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+
     private void saveToRecentlyPlayed() {
         Track currentTrack = getCurrentTrack();
         if (currentTrack == null) {
@@ -169,41 +265,39 @@ public class MusicService extends MediaBrowserServiceCompat {
         Log.d(TAG, "Added to recently played: " + currentTrack.getTitle());
     }
 
-    private void handleTrackEnded() {
-            if (player == null || playlist == null) return;
+    // ExoPlayer đã tự chuyển bài (hết bài, lặp lại, người dùng bỏ qua hoặc hàng đợi đổi)
+    private void handleMediaItemTransition(int reason) {
+        playlist.syncIndex(player.getCurrentMediaItemIndex());
+        Track current = getCurrentTrack();
 
-            long duration = player.getDuration();
-            Track currentTrack = getCurrentTrack();
-            PlaylistManager.RepeatMode repeatMode = playlist.getRepeatMode();
-            switch (repeatMode) {
-                case ONE:
-                    player.seekTo(0);
-                    player.play();
-                    break;
+        // Sắp xếp lại hàng đợi quanh bài đang phát: không phải lượt nghe mới
+        if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_PLAYLIST_CHANGED && current == transitionTrack) {
+            return;
+        }
+        transitionTrack = current;
 
-                case ALL:
-                    Track nextTrack = playlist.next();
-                    if (nextTrack != null) {
-                        playTrack(nextTrack);
-                    } else {
-                        playlist.resetToStart();
-                        playTrack(playlist.getCurrent());
-                    }
-                    break;
+        if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO
+                || reason == Player.MEDIA_ITEM_TRANSITION_REASON_REPEAT) {
+            playHistory.onTrackEnded(); // Bài trước đã phát hết
+        }
+        playHistory.onTrackStarted(current);
+        schedulePrefetch();
 
-                case NONE:
-                default:
-                    Track next = playlist.next();
-                    if (next != null) {
-                        playTrack(next);
-                    } else {
-                        notifyPlaybackStateChanged(false);
-                    }
-                    break;
-            }
+        if (current != null) {
+            Log.d(TAG, "Media item transition (" + reason + "): " + current.getTitle());
+            UserPlaylistManager.getInstance().addToRecentlyPlayed(current);
+        }
+        updateMediaSession();
+        updateNotification();
+        notifyTrackChanged(current);
     }
 
-    private Handler handler = new Handler();
+    // Tải trước các bài sắp phát; gọi lại mỗi khi bài hiện tại hoặc hàng đợi thay đổi
+    private void schedulePrefetch() {
+        if (prefetcher != null) {
+            prefetcher.prefetch(playlist.getUpcoming(QueuePrefetcher.MAX_TRACKS));
+        }
+    }
 
     private void initializeMediaSession() {
         try {
@@ -259,15 +353,22 @@ public class MusicService extends MediaBrowserServiceCompat {
         }
     }
 
-    // CHỈ GIỮ LẠI 1 PHƯƠNG THỨC UPDATE MEDIA SESSION
+    // Gộp mọi yêu cầu cập nhật MediaSession trong 1 khung hình thành 1 lần (chạy trên luồng phát)
     private void updateMediaSession() {
+        if (playerHandler == null || sessionUpdatePending) return;
+        sessionUpdatePending = true;
+        playerHandler.postDelayed(this::flushMediaSession, UPDATE_INTERVAL_MS);
+    }
+
+    private void flushMediaSession() {
+        sessionUpdatePending = false;
         try {
             if (mediaSession == null) return;
 
             Track currentTrack = getCurrentTrack();
 
-            // Update Metadata
-            if (currentTrack != null) {
+            // Metadata chỉ đổi khi đổi bài
+            if (currentTrack != null && currentTrack != sessionTrack) {
                 MediaMetadataCompat.Builder metadataBuilder = new MediaMetadataCompat.Builder()
                         .putString(MediaMetadataCompat.METADATA_KEY_TITLE, currentTrack.getTitle())
                         .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, currentTrack.getArtistName())
@@ -276,6 +377,7 @@ public class MusicService extends MediaBrowserServiceCompat {
 
                 mediaSession.setMetadata(metadataBuilder.build());
             }
+            sessionTrack = currentTrack;
 
             // Update Playback State
             int playbackState = PlaybackStateCompat.STATE_NONE;
@@ -293,6 +395,18 @@ public class MusicService extends MediaBrowserServiceCompat {
                 }
             }
 
+            // Hệ thống tự ngoại suy vị trí khi đang phát: chỉ đẩy lại khi trạng thái đổi hoặc bị seek
+            long now = SystemClock.elapsedRealtime();
+            long expectedPosition = sessionPosition
+                    + (sessionState == PlaybackStateCompat.STATE_PLAYING ? now - sessionRealtime : 0);
+            if (playbackState == sessionState
+                    && Math.abs(position - expectedPosition) < SESSION_POSITION_TOLERANCE_MS) {
+                return;
+            }
+            sessionState = playbackState;
+            sessionPosition = position;
+            sessionRealtime = now;
+
             // Set actions available
             long actions = PlaybackStateCompat.ACTION_PLAY |
                     PlaybackStateCompat.ACTION_PAUSE |
@@ -303,7 +417,7 @@ public class MusicService extends MediaBrowserServiceCompat {
 
             PlaybackStateCompat.Builder stateBuilder = new PlaybackStateCompat.Builder()
                     .setActions(actions)
-                    .setState(playbackState, position, 1.0f, System.currentTimeMillis());
+                    .setState(playbackState, position, 1.0f, now);
 
             mediaSession.setPlaybackState(stateBuilder.build());
 
@@ -312,8 +426,6 @@ public class MusicService extends MediaBrowserServiceCompat {
         }
     }
 
-    // XÓA PHƯƠNG THỨC updateMediaSessionPlaybackState() VÌ TRÙNG LẶP
-
     private void initializeNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -333,109 +445,20 @@ public class MusicService extends MediaBrowserServiceCompat {
         }
     }
 
-    private Notification createNotification() {
-        try {
-            Track currentTrack = getCurrentTrack();
-            if (currentTrack == null) {
-                Log.w(TAG, "No current track for notification");
-                return createFallbackNotification();
-            }
-
-            Intent intent = new Intent(this, NowPlayingActivity.class);
-            intent.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            // Tạo notification builder
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                    .setSmallIcon(R.drawable.ic_music_note)
-                    .setContentTitle(currentTrack.getTitle())
-                    .setContentText(currentTrack.getArtistName())
-                    .setContentIntent(pendingIntent)
-                    .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-                    .setPriority(NotificationCompat.PRIORITY_LOW)
-                    .setOngoing(isPlaying())
-                    .setShowWhen(false)
-                    .setOnlyAlertOnce(true);
-
-            // Thêm MediaStyle
-            if (mediaSession != null) {
-                builder.setStyle(new androidx.media.app.NotificationCompat.MediaStyle()
-                        .setMediaSession(mediaSession.getSessionToken())
-                        .setShowActionsInCompactView(0, 1, 2));
-            }
-
-            // Thêm actions
-            builder.addAction(R.drawable.ic_skip_previous, "Previous",
-                            MediaButtonReceiver.buildMediaButtonPendingIntent(this,
-                                    PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS))
-                    .addAction(isPlaying() ? R.drawable.ic_pause : R.drawable.ic_play,
-                            isPlaying() ? "Pause" : "Play",
-                            MediaButtonReceiver.buildMediaButtonPendingIntent(this,
-                                    isPlaying() ? PlaybackStateCompat.ACTION_PAUSE : PlaybackStateCompat.ACTION_PLAY))
-                    .addAction(R.drawable.ic_skip_next, "Next",
-                            MediaButtonReceiver.buildMediaButtonPendingIntent(this,
-                                    PlaybackStateCompat.ACTION_SKIP_TO_NEXT));
-
-            // Load ảnh album bất đồng bộ
-            loadAlbumArtForNotification(builder, currentTrack);
-
-            return builder.build();
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating notification", e);
-            return createFallbackNotification();
-        }
-    }
-
-    private void loadAlbumArtForNotification(NotificationCompat.Builder builder, Track track) {
-        try {
-            if (track.getArtworkUri() != null) {
-                // Sử dụng Glide để load ảnh
-                Glide.with(this)
-                        .asBitmap()
-                        .load(track.getArtworkUri())
-                        .into(new CustomTarget<Bitmap>(256, 256) { // Kích thước tối ưu cho notification
-                            @Override
-                            public void onResourceReady(@NonNull Bitmap resource,
-                                                        @Nullable Transition<? super Bitmap> transition) {
-                                try {
-                                    // Set ảnh khi load thành công
-                                    builder.setLargeIcon(resource);
-                                    updateNotificationWithBitmap(resource);
-                                    Log.d(TAG, "Album art loaded successfully for notification");
-                                } catch (Exception e) {
-                                    Log.e(TAG, "Error setting album art", e);
-                                    setFallbackIcon(builder);
-                                }
-                            }
-
-                            @Override
-                            public void onLoadCleared(@Nullable Drawable placeholder) {
-                                // Dùng ảnh fallback nếu load thất bại
-                                setFallbackIcon(builder);
-                            }
-
-                            @Override
-                            public void onLoadFailed(@Nullable Drawable errorDrawable) {
-                                Log.w(TAG, "Failed to load album art, using fallback");
-                                setFallbackIcon(builder);
-                            }
-                        });
-            } else {
-                // Không có artwork URI, dùng fallback
-                setFallbackIcon(builder);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading album art for notification", e);
-            setFallbackIcon(builder);
-        }
+    // Notification và Glide chạy trên main thread; gọi được từ luồng phát.
+    // Các yêu cầu trong cùng 1 khung hình được gộp lại thành 1 lần đăng.
+    private void updateNotification() {
+        runOnMain(() -> {
+            if (notificationUpdatePending) return;
+            notificationUpdatePending = true;
+            mainHandler.postDelayed(this::flushNotification, UPDATE_INTERVAL_MS);
+        });
     }
 
-    private void updateNotificationWithBitmap(Bitmap bitmap) {
+    private void flushNotification() {
+        notificationUpdatePending = false;
         try {
-            // Cập nhật notification với ảnh mới
-            Notification notification = createNotificationWithBitmap(bitmap);
+            Notification notification = buildNotification(true);
             if (notification != null) {
                 NotificationManager notificationManager =
                         (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
@@ -444,115 +467,141 @@ public class MusicService extends MediaBrowserServiceCompat {
                 }
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error updating notification with bitmap", e);
+            Log.e(TAG, "Error updating notification", e);
         }
     }
 
-    private Notification createNotificationWithBitmap(Bitmap largeIcon) {
+    // skipUnchanged: trả về null nếu nội dung hiển thị giống hệt lần đăng trước
+    private Notification buildNotification(boolean skipUnchanged) {
         try {
             Track currentTrack = getCurrentTrack();
-            if (currentTrack == null) return null;
-
-            Intent intent = new Intent(this, NowPlayingActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                    .setSmallIcon(R.drawable.ic_music_note)
-                    .setLargeIcon(largeIcon) // Set ảnh đã load
-                    .setContentTitle(currentTrack.getTitle())
-                    .setContentText(currentTrack.getArtistName())
-                    .setContentIntent(pendingIntent)
-                    .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-                    .setPriority(NotificationCompat.PRIORITY_LOW)
-                    .setOngoing(isPlaying())
-                    .setShowWhen(false)
-                    .setOnlyAlertOnce(true);
-
-            if (mediaSession != null) {
-                builder.setStyle(new androidx.media.app.NotificationCompat.MediaStyle()
-                        .setMediaSession(mediaSession.getSessionToken())
-                        .setShowActionsInCompactView(0, 1, 2));
+            boolean playing = isPlaying();
+            Bitmap artwork = currentTrack != null ? getNotificationArtwork(currentTrack) : null;
+
+            String key = currentTrack == null
+                    ? "none|" + playing
+                    : currentTrack.getId() + "|" + currentTrack.getTitle() + "|" + currentTrack.getArtistName()
+                            + "|" + playing + "|" + System.identityHashCode(artwork);
+            if (skipUnchanged && key.equals(postedNotificationKey)) {
+                return null;
             }
+            postedNotificationKey = key;
 
-            builder.addAction(R.drawable.ic_skip_previous, "Previous",
-                            MediaButtonReceiver.buildMediaButtonPendingIntent(this,
-                                    PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS))
-                    .addAction(isPlaying() ? R.drawable.ic_pause : R.drawable.ic_play,
-                            isPlaying() ? "Pause" : "Play",
-                            MediaButtonReceiver.buildMediaButtonPendingIntent(this,
-                                    isPlaying() ? PlaybackStateCompat.ACTION_PAUSE : PlaybackStateCompat.ACTION_PLAY))
-                    .addAction(R.drawable.ic_skip_next, "Next",
-                            MediaButtonReceiver.buildMediaButtonPendingIntent(this,
-                                    PlaybackStateCompat.ACTION_SKIP_TO_NEXT));
-
-            return builder.build();
+            if (currentTrack == null) {
+                Log.w(TAG, "No current track for notification");
+                return createFallbackNotification(playing);
+            }
+            return createNotification(currentTrack, playing, artwork);
         } catch (Exception e) {
-            Log.e(TAG, "Error creating notification with bitmap", e);
+            Log.e(TAG, "Error creating notification", e);
             return null;
         }
     }
 
-    private void setFallbackIcon(NotificationCompat.Builder builder) {
-        try {
-            Bitmap fallbackIcon = BitmapFactory.decodeResource(getResources(), R.drawable.ic_music_note);
-            builder.setLargeIcon(fallbackIcon);
-        } catch (Exception e) {
-            Log.e(TAG, "Error setting fallback icon", e);
-        }
+    private Notification createNotification(Track currentTrack, boolean playing, @Nullable Bitmap largeIcon) {
+        Intent intent = new Intent(this, NowPlayingActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        return createBaseBuilder(playing)
+                .setLargeIcon(largeIcon)
+                .setContentTitle(currentTrack.getTitle())
+                .setContentText(currentTrack.getArtistName())
+                .setContentIntent(pendingIntent)
+                .build();
     }
 
-    private Notification createFallbackNotification() {
+    private Notification createFallbackNotification(boolean playing) {
         // Notification đơn giản không có ảnh album
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setSmallIcon(R.drawable.ic_music_note)
+        return createBaseBuilder(playing)
                 .setContentTitle("MusicBanger")
                 .setContentText("Đang phát nhạc")
+                .build();
+    }
+
+    private NotificationCompat.Builder createBaseBuilder(boolean playing) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_music_note)
                 .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
                 .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setOngoing(isPlaying())
+                .setOngoing(playing)
                 .setShowWhen(false)
                 .setOnlyAlertOnce(true);
 
+        // Thêm MediaStyle
         if (mediaSession != null) {
             builder.setStyle(new androidx.media.app.NotificationCompat.MediaStyle()
                     .setMediaSession(mediaSession.getSessionToken())
                     .setShowActionsInCompactView(0, 1, 2));
         }
 
+        // Thêm actions
         builder.addAction(R.drawable.ic_skip_previous, "Previous",
                         MediaButtonReceiver.buildMediaButtonPendingIntent(this,
                                 PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS))
-                .addAction(isPlaying() ? R.drawable.ic_pause : R.drawable.ic_play,
-                        isPlaying() ? "Pause" : "Play",
+                .addAction(playing ? R.drawable.ic_pause : R.drawable.ic_play,
+                        playing ? "Pause" : "Play",
                         MediaButtonReceiver.buildMediaButtonPendingIntent(this,
-                                isPlaying() ? PlaybackStateCompat.ACTION_PAUSE : PlaybackStateCompat.ACTION_PLAY))
+                                playing ? PlaybackStateCompat.ACTION_PAUSE : PlaybackStateCompat.ACTION_PLAY))
                 .addAction(R.drawable.ic_skip_next, "Next",
                         MediaButtonReceiver.buildMediaButtonPendingIntent(this,
                                 PlaybackStateCompat.ACTION_SKIP_TO_NEXT));
+        return builder;
+    }
+
+    // Ảnh album của bài hiện tại: giải mã 1 lần rồi dùng lại cho mọi lần đăng notification.
+    // Trong lúc tải trả về ảnh mặc định, tải xong sẽ tự yêu cầu cập nhật lại.
+    private Bitmap getNotificationArtwork(Track track) {
+        if (track.getId() != null && track.getId().equals(artworkTrackId)) {
+            return artworkBitmap != null ? artworkBitmap : getFallbackArtwork();
+        }
 
-        return builder.build();
+        ArtworkManager artworkManager = ArtworkManager.getInstance();
+        artworkManager.cancel(artworkTarget);
+        artworkTrackId = track.getId();
+        artworkBitmap = null;
+
+        // Cùng cỡ THUMB với MiniPlayer: bitmap đã giải mã được dùng lại từ cache
+        String trackId = track.getId();
+        artworkTarget = artworkManager.loadBitmap(track, ArtworkManager.Size.THUMB,
+                new ArtworkManager.ArtworkCallback() {
+                    @Override
+                    public void onArtworkReady(@NonNull Bitmap bitmap) {
+                        if (trackId == null || !trackId.equals(artworkTrackId)) return; // Đã sang bài khác
+                        artworkBitmap = bitmap;
+                        Log.d(TAG, "Album art loaded successfully for notification");
+                        updateNotification();
+                    }
+
+                    @Override
+                    public void onArtworkFailed() {
+                        Log.w(TAG, "No album art, using fallback");
+                    }
+                });
+        // Ảnh đã có trong cache bộ nhớ thì Glide trả về ngay trong lúc gọi
+        return artworkBitmap != null ? artworkBitmap : getFallbackArtwork();
     }
 
-    private void updateNotification() {
-        try {
-            Notification notification = createNotification();
-            if (notification != null) {
-                NotificationManager notificationManager =
-                        (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-                if (notificationManager != null) {
-                    notificationManager.notify(NOTIFICATION_ID, notification);
-                }
+    private Bitmap getFallbackArtwork() {
+        if (fallbackArtwork == null) {
+            try {
+                fallbackArtwork = BitmapFactory.decodeResource(getResources(), R.drawable.ic_music_note);
+            } catch (Exception e) {
+                Log.e(TAG, "Error decoding fallback icon", e);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error updating notification", e);
         }
+        return fallbackArtwork;
     }
 
-    @SuppressLint("ForegroundServiceType")
     private void startMusicForeground() {
+        runOnMain(this::enterForeground);
+    }
+
+    @SuppressLint("ForegroundServiceType")
+    private void enterForeground() {
         try {
-            Notification notification = createNotification();
+            Notification notification = buildNotification(false);
             if (notification != null) {
                 startForeground(NOTIFICATION_ID, notification);
                 Log.d(TAG, "Started music foreground service");
@@ -584,160 +633,191 @@ public class MusicService extends MediaBrowserServiceCompat {
         return binder;
     }
 
-    // Public methods
+    // Public methods: gọi từ main thread, việc thật sự chạy trên luồng phát
     public void setPlaylistAndPlay(List<Track> tracks, int startIndex) {
-        try {
-            Log.d(TAG, "setPlaylistAndPlay - tracks: " + (tracks != null ? tracks.size() : 0) + ", startIndex: " + startIndex);
-            playlist.setPlaylist(tracks, startIndex);
-            Track current = playlist.getCurrent();
-            if (current != null) {
-                playTrack(current);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in setPlaylistAndPlay: " + e.getMessage(), e);
-        }
-    }
-
-    public void playTrack(Track track) {
-        try {
-            if (track == null) return;
-
-            Log.d(TAG, "Playing track: " + track.getTitle());
+        Log.d(TAG, "setPlaylistAndPlay - tracks: " + (tracks != null ? tracks.size() : 0) + ", startIndex: " + startIndex);
+        List<Track> queue = tracks != null ? new ArrayList<>(tracks) : new ArrayList<>();
+        runOnPlayer(() -> {
+            try {
+                if (player == null) return;
 
-            if (track.getStreamUri() != null) {
-                MediaItem mediaItem = MediaItem.fromUri(track.getStreamUri());
-                if (player != null) {
-                    player.setMediaItem(mediaItem);
-                    player.prepare();
+                // Nạp cả hàng đợi vào ExoPlayer: bài kế tiếp được tải trước nên chuyển bài không bị ngắt
+                transitionTrack = null; // Hàng đợi mới luôn là lượt nghe mới, kể cả khi cùng bài
+                playlist.setPlaylist(queue, startIndex);
+                if (playlist.getCurrent() != null) {
                     player.play();
-                    Log.d(TAG, "Track playback started");
-
-                    updateMediaSession();
                     startMusicForeground();
 
-                    // QUAN TRỌNG: THÔNG BÁO TRACK CHANGED VÀ PLAYBACK STATE CHANGED
-                    notifyTrackChanged(track);
-
                     // THÔNG BÁO PLAYBACK STATE SAU KHI PLAYER ĐÃ SẴN SÀNG
-                    handler.postDelayed(() -> {
+                    mainHandler.postDelayed(() -> {
                         notifyPlaybackStateChanged(true);
                     }, 100);
                 }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in setPlaylistAndPlay: " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error playing track: " + e.getMessage(), e);
-        }
+        });
     }
 
-    public void playNext() {
-        try {
-            Log.d(TAG, "playNext called");
-            Track next = playlist.next();
-            if (next != null) {
-                playTrack(next); // playTrack sẽ tự động gọi notifyTrackChanged
+    // Phát 1 bài: nhảy tới nếu bài đã có trong hàng đợi, nếu không thì chèn ngay sau bài hiện tại
+    public void playTrack(Track track) {
+        if (track == null) return;
+        Log.d(TAG, "Playing track: " + track.getTitle());
+        runOnPlayer(() -> {
+            try {
+                if (player == null) return;
+                if (playlist.getCurrent() == null) {
+                    resetAndPlayTrack(track);
+                    return;
+                }
+                if (playlist.jumpTo(track) || (playlist.addNext(track) && playlist.next() != null)) {
+                    player.play();
+                    startMusicForeground();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error playing track: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Thêm bài vào hàng đợi ngay sau bài đang phát.
+    // Việc thêm chạy bất đồng bộ trên player thread: true chỉ có nghĩa yêu cầu hợp lệ và đã được
+    // gửi đi (bài có stream, service đã sẵn sàng), chưa phải bài đã vào hàng đợi. Kết quả thực tế
+    // đến qua PlaybackEventBus (QUEUE_CHANGED, hoặc TRACK_CHANGED nếu hàng đợi đang trống).
+    // false: bài không phát được, không có gì được gửi đi.
+    public boolean addToQueue(Track track) {
+        if (track == null || track.getStreamUri() == null || playerHandler == null) return false;
+        runOnPlayer(() -> {
+            if (playlist.getCurrent() == null) {
+                resetAndPlayTrack(track);
             } else {
-                // Nếu không có bài tiếp theo, vẫn thông báo playback state
-                notifyPlaybackStateChanged(false);
+                playlist.addNext(track);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in playNext: " + e.getMessage(), e);
-        }
+        });
+        return true;
+    }
+
+    public void playNext() {
+        Log.d(TAG, "playNext called");
+        runOnPlayer(() -> {
+            try {
+                // onMediaItemTransition sẽ tự động gọi notifyTrackChanged
+                if (playlist.next() == null) {
+                    // Nếu không có bài tiếp theo, vẫn thông báo playback state
+                    notifyPlaybackStateChanged(false);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in playNext: " + e.getMessage(), e);
+            }
+        });
     }
 
     public void playPrevious() {
-        //VINH: t thế cái try catch thành if cho nó performance hơn
-        long currentPosition = player.getCurrentPosition();
-        if (playlist == null){
-            Log.w(TAG, "Playlist is null");
-            notifyPlaybackStateChanged(false);
-            return;
-        }
+        runOnPlayer(() -> {
+            //VINH: t thế cái try catch thành if cho nó performance hơn
+            if (player == null || playlist == null){
+                Log.w(TAG, "Playlist is null");
+                notifyPlaybackStateChanged(false);
+                return;
+            }
 
-        Track prev = playlist.previous(currentPosition);
-        if (prev == null){
-            Log.w(TAG, "no previous track available");
-            notifyPlaybackStateChanged(false);
-            return;
-        }
-        playTrack(prev);
+            long currentPosition = player.getCurrentPosition();
+            Track prev = playlist.previous(currentPosition);
+            if (prev == null && currentPosition <= 3000){
+                Log.w(TAG, "no previous track available");
+                notifyPlaybackStateChanged(false);
+            }
+        });
     }
 
     public void pause() {
-        try {
-            Log.d(TAG, "pause called");
-            if (player != null) {
-                player.pause();
-                updateMediaSession();
-                updateNotification();
-                notifyPlaybackStateChanged(false);
+        Log.d(TAG, "pause called");
+        runOnPlayer(() -> {
+            try {
+                if (player != null) {
+                    player.pause();
+                    updateSnapshot(player);
+                    updateMediaSession();
+                    updateNotification();
+                    notifyPlaybackStateChanged(false);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in pause: " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in pause: " + e.getMessage(), e);
-        }
+        });
     }
 
     public void resume() {
-        try {
-            Log.d(TAG, "resume called");
-            if (player != null) {
-                player.play();
-                updateMediaSession();
-                startMusicForeground();
-                notifyPlaybackStateChanged(true);
+        Log.d(TAG, "resume called");
+        runOnPlayer(() -> {
+            try {
+                if (player != null) {
+                    player.play();
+                    updateSnapshot(player);
+                    updateMediaSession();
+                    startMusicForeground();
+                    notifyPlaybackStateChanged(true);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in resume: " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in resume: " + e.getMessage(), e);
-        }
+        });
     }
 
     public void stop() {
-        try {
-            Log.d(TAG, "stop called");
-            if (player != null) {
-                player.stop();
-                updateMediaSession();
-                updateNotification();
+        Log.d(TAG, "stop called");
+        runOnPlayer(() -> {
+            try {
+                if (player != null) {
+                    player.stop();
+                    updateMediaSession();
+                    updateNotification();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in stop: " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in stop: " + e.getMessage(), e);
-        }
+        });
     }
 
     public void seekTo(long position) {
-        try {
-            if (player != null) {
-                player.seekTo(position);
-                updateMediaSession();
+        // Cập nhật ảnh chụp ngay để thanh seek không nhảy về vị trí cũ trong lúc chờ luồng phát
+        positionSnapshot = position;
+        snapshotRealtime = SystemClock.elapsedRealtime();
+        runOnPlayer(() -> {
+            try {
+                if (player != null) {
+                    player.seekTo(position);
+                    updateMediaSession();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in seekTo: " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in seekTo: " + e.getMessage(), e);
-        }
+        });
     }
 
+    // Các getter dưới đây đọc ảnh chụp trạng thái nên an toàn khi gọi từ main thread
     public boolean isPlaying() {
-        if (player != null) {
-            boolean playing = player.isPlaying();
-            Log.d(TAG, "isPlaying() called - returning: " + playing);
-            return playing;
-        }
-        Log.d(TAG, "isPlaying() called - player is null, returning false");
-        return false;
+        return playingSnapshot;
     }
 
     public boolean isActuallyPlaying() {
-        if (player != null) {
-            int playbackState = player.getPlaybackState();
-            boolean isPlaying = player.isPlaying();
-
-            Log.d(TAG, "Player state - PlaybackState: " + playbackState +
-                    ", isPlaying: " + isPlaying +
-                    ", Buffering: " + (playbackState == Player.STATE_BUFFERING) +
-                    ", Ready: " + (playbackState == Player.STATE_READY));
+        // Trả về true nếu player đang ở trạng thái READY và isPlaying là true
+        return playbackStateSnapshot == Player.STATE_READY && playingSnapshot;
+    }
 
-            // Trả về true nếu player đang ở trạng thái READY và isPlaying là true
-            return playbackState == Player.STATE_READY && isPlaying;
+    // Vị trí hiện tại (ms), ngoại suy từ lần chụp gần nhất khi đang phát
+    public long getCurrentPosition() {
+        long position = positionSnapshot;
+        if (playingSnapshot) {
+            position += SystemClock.elapsedRealtime() - snapshotRealtime;
         }
-        return false;
+        long duration = durationSnapshot;
+        return duration > 0 ? Math.min(position, duration) : position;
+    }
+
+    // Thời lượng bài hiện tại (ms), C.TIME_UNSET nếu chưa biết
+    public long getDuration() {
+        return durationSnapshot;
     }
 
     public Track getCurrentTrack() {
@@ -752,11 +832,27 @@ public class MusicService extends MediaBrowserServiceCompat {
     public void onDestroy() {
         super.onDestroy();
         Log.d(TAG, "MusicService onDestroy");
+        Log.d(TAG, "Audio cache stats: " + AudioCacheManager.getInstance().getStats());
+        if (prefetcher != null) {
+            prefetcher.release();
+        }
+        if (positionTicker != null) {
+            positionTicker.release();
+        }
         try {
-            if (player != null) {
-                player.release();
-                player = null;
+            // Giải phóng player trên đúng luồng của nó rồi mới cho luồng phát dừng
+            runOnPlayer(() -> {
+                playHistory.finish(false);
+                if (player != null) {
+                    player.release();
+                    player = null;
+                }
+            });
+            if (playbackThread != null) {
+                playbackThread.quitSafely();
             }
+            mainHandler.removeCallbacksAndMessages(null);
+            ArtworkManager.getInstance().cancel(artworkTarget);
             if (mediaSession != null) {
                 mediaSession.setActive(false);
                 mediaSession.release();
@@ -771,82 +867,113 @@ public class MusicService extends MediaBrowserServiceCompat {
         if (currentTrack != null) {
             UserPlaylistManager.getInstance().addToRecentlyPlayed(currentTrack);
         }
+        UserPlaylistManager.getInstance().flushRecentlyPlayed();
     }
 
-    // PlaylistManager class (giữ nguyên)
+    // PlaylistManager: hàng đợi phát, luôn khớp 1-1 với danh sách MediaItem của ExoPlayer.
+    // Mọi thay đổi hàng đợi được áp thẳng lên timeline của player thay vì setMediaItem từng bài.
+    // original / playback chỉ được sửa trên luồng phát; main thread đọc qua current / snapshot.
     public class PlaylistManager {
 
         public enum RepeatMode { NONE, ONE, ALL }
         private final List<Track> original = new ArrayList<>();
-        private final List<Track> playback = new ArrayList<>();
-        private int index = 0;
-        private boolean shuffle = false;
-        private RepeatMode repeatMode = RepeatMode.NONE;
+        private final List<Track> playback = new ArrayList<>(); // Thứ tự phát thực tế = thứ tự MediaItem
+        private volatile int index = 0;
+        private volatile boolean shuffle = false;
+        private volatile RepeatMode repeatMode = RepeatMode.NONE;
+        private volatile Track current;
+        private volatile List<Track> snapshot = Collections.emptyList();
+
+        // Gọi sau mỗi lần hàng đợi / vị trí đổi trên luồng phát
+        private void publish() {
+            current = index >= 0 && index < playback.size() ? playback.get(index) : null;
+            snapshot = Collections.unmodifiableList(new ArrayList<>(playback));
+        }
 
         public void setPlaylist(List<Track> tracks, int startIndex) {
             try {
                 original.clear();
+                Track start = null;
                 if (tracks != null) {
-                    original.addAll(tracks);
+                    for (int i = 0; i < tracks.size(); i++) {
+                        Track track = tracks.get(i);
+                        // Bỏ các bài không phát được, bài bắt đầu là bài phát được đầu tiên từ startIndex
+                        if (track == null || track.getStreamUri() == null) continue;
+                        original.add(track);
+                        if (start == null && i >= startIndex) {
+                            start = track;
+                        }
+                    }
+                }
+                if (start == null && !original.isEmpty()) {
+                    start = original.get(original.size() - 1);
+                }
+
+                rebuild(start);
+                index = Math.max(0, indexOf(playback, start));
+                publish();
+                if (player != null) {
+                    player.setMediaSources(toMediaSources(playback), index, 0);
+                    player.prepare();
                 }
-                rebuild();
-                index = Math.max(0, Math.min(startIndex, playback.size() - 1));
+                onQueueChanged();
                 Log.d(TAG, "Playlist set - size: " + playback.size() + ", index: " + index);
             } catch (Exception e) {
                 Log.e(TAG, "Error setting playlist: " + e.getMessage(), e);
             }
         }
 
-        private void resetToStart() {
-            if (playback == null || playback.isEmpty()){
-                Log.d(TAG, "fail resetToStart: playlist trống");
-                return;
-            }
-            index = 0;
-        }
-
-        private void rebuild() {
+        // Khi ngẫu nhiên, bài đang phát (first) đứng đầu, phần còn lại xáo trộn
+        private void rebuild(Track first) {
             playback.clear();
             playback.addAll(original);
             if (shuffle) {
                 Collections.shuffle(playback, new Random(System.currentTimeMillis()));
+                int firstIndex = indexOf(playback, first);
+                if (firstIndex > 0) {
+                    playback.add(0, playback.remove(firstIndex));
+                }
             }
         }
 
-        public Track getCurrent() {
-            if (playback.isEmpty() || index < 0 || index >= playback.size()) {
-                return null;
+        // Hàng đợi vừa đổi (luồng phát): tải trước lại và báo cho observer
+        private void onQueueChanged() {
+            schedulePrefetch();
+            eventBus.publishQueueChanged(playback.size());
+        }
+
+        // Gọi từ onMediaItemTransition
+        void syncIndex(int mediaItemIndex) {
+            if (mediaItemIndex >= 0 && mediaItemIndex < playback.size()) {
+                index = mediaItemIndex;
+                current = playback.get(index);
             }
-            return playback.get(index);
         }
 
+        public Track getCurrent() {
+            return current;
+        }
+
+        // Chuyển sang bài kế tiếp trong timeline (đã tính lặp lại tất cả). Trả về null nếu hết hàng đợi
         public Track next() {
-            if (playback.isEmpty()) {
+            if (player == null || playback.isEmpty()) {
                 Log.d(TAG, "Playback list is empty");
                 return null;
             }
-
-            // KIỂM TRA NẾU ĐANG Ở CUỐI DANH SÁCH
-            if (index >= playback.size() - 1) {
-                Log.d(TAG, "Reached end of playlist");
-                if (repeatMode == RepeatMode.ALL) {
-                    index = 0; // QUAY VỀ ĐẦU PLAYLIST
-                    Log.d(TAG, "Repeat all - looping to start");
-                } else {
-                    // KHÔNG PHÁT TIẾP NGOÀI PLAYLIST HIỆN TẠI
-                    Log.d(TAG, "No repeat - stopping at end of playlist");
-                    return null;
-                }
-            } else {
-                index++; // CHUYỂN ĐẾN BÀI TIẾP THEO
+            if (!player.hasNextMediaItem()) {
+                Log.d(TAG, "No repeat - stopping at end of playlist");
+                return null;
             }
 
+            player.seekToNextMediaItem();
+            syncIndex(player.getCurrentMediaItemIndex());
             Track nextTrack = getCurrent();
             Log.d(TAG, "Next track: " + (nextTrack != null ? nextTrack.getTitle() : "null"));
             return nextTrack;
         }
 
         public Track previous(long currentPosition) {
+            if (player == null) return null;
             if (currentPosition > 3000){
                 player.seekTo(0);
                 player.play();
@@ -856,106 +983,255 @@ public class MusicService extends MediaBrowserServiceCompat {
                 Log.d(TAG, "Playback list is empty");
                 return null;
             }
-
-            // KIỂM TRA NẾU ĐANG Ở ĐẦU DANH SÁCH
-            if (index <= 0) {
-                Log.d(TAG, "Reached start of playlist");
-                if (repeatMode == RepeatMode.ALL) {
-                    index = playback.size() - 1; // QUAY VỀ CUỐI PLAYLIST
-                    Log.d(TAG, "Repeat all - looping to end");
-                } else {
-                    // KHÔNG PHÁT LÙI NGOÀI PLAYLIST HIỆN TẠI
-                    Log.d(TAG, "No repeat - stopping at start of playlist");
-                    return null;
-                }
-            } else {
-                index--; // CHUYỂN ĐẾN BÀI TRƯỚC
+            if (!player.hasPreviousMediaItem()) {
+                Log.d(TAG, "No repeat - stopping at start of playlist");
+                return null;
             }
 
+            player.seekToPreviousMediaItem();
+            syncIndex(player.getCurrentMediaItemIndex());
             Track prevTrack = getCurrent();
             Log.d(TAG, "Previous track: " + (prevTrack != null ? prevTrack.getTitle() : "null"));
             return prevTrack;
         }
 
+        // Chèn bài ngay sau bài đang phát; ExoPlayer tải trước bài này như mọi bài kế tiếp khác
+        public boolean addNext(Track track) {
+            if (track == null || track.getStreamUri() == null) return false;
+
+            int originalIndex = indexOf(original, getCurrent());
+            original.add(originalIndex + 1, track);
+            int position = playback.isEmpty() ? 0 : index + 1;
+            playback.add(position, track);
+            publish();
+            if (player != null) {
+                player.addMediaSource(position, toMediaSource(track));
+            }
+            onQueueChanged();
+            return true;
+        }
+
+        // Xóa bài ở vị trí position của hàng đợi (không xóa bài đang phát)
+        public boolean remove(int position) {
+            if (position < 0 || position >= playback.size() || position == index) return false;
+
+            Track removed = playback.remove(position);
+            int originalIndex = indexOf(original, removed);
+            if (originalIndex >= 0) {
+                original.remove(originalIndex);
+            }
+            if (position < index) {
+                index--;
+            }
+            publish();
+            if (player != null) {
+                player.removeMediaItem(position);
+            }
+            onQueueChanged();
+            return true;
+        }
+
+        // Nhảy tới bài đã có trong hàng đợi
+        public boolean jumpTo(Track track) {
+            int position = playback.indexOf(track);
+            if (position < 0 || player == null) return false;
+
+            player.seekToDefaultPosition(position);
+            syncIndex(position);
+            return true;
+        }
+
+        // Cờ đổi ngay để UI hiển thị đúng, việc sắp xếp lại hàng đợi chạy trên luồng phát
         public void toggleShuffle() {
             shuffle = !shuffle;
+            runOnPlayer(this::applyShuffle);
+        }
+
+        private void applyShuffle() {
             Track current = getCurrent();
-            rebuild();
-            if (current != null) {
-                index = playback.indexOf(current);
-                if (index == -1) index = 0;
+            rebuild(current);
+            int newIndex = indexOf(playback, current);
+            if (newIndex == -1) newIndex = 0;
+
+            // Giữ nguyên MediaItem đang phát, chỉ thay các bài trước / sau nó nên không bị ngắt nhạc
+            if (player != null && current != null && player.getMediaItemCount() == playback.size()) {
+                int count = player.getMediaItemCount();
+                player.removeMediaItems(index + 1, count);
+                player.removeMediaItems(0, index);
+                player.addMediaSources(0, toMediaSources(playback.subList(0, newIndex)));
+                player.addMediaSources(toMediaSources(playback.subList(newIndex + 1, playback.size())));
             }
+            index = newIndex;
+            publish();
+            onQueueChanged();
         }
 
         public void toggleRepeat() {
             switch (repeatMode) {
                 case NONE:
-                    repeatMode = RepeatMode.ALL;
+                    setRepeatMode(RepeatMode.ALL);
                     break;
                 case ALL:
-                    repeatMode = RepeatMode.ONE;
+                    setRepeatMode(RepeatMode.ONE);
                     break;
                 case ONE:
-                    repeatMode = RepeatMode.NONE;
+                    setRepeatMode(RepeatMode.NONE);
                     break;
             }
         }
 
         public boolean isShuffle() { return shuffle; }
         public RepeatMode getRepeatMode() { return repeatMode; }
-        public void setRepeatMode(RepeatMode repeatMode) { this.repeatMode = repeatMode; }
         public int getCurrentIndex() { return index; }
-        public List<Track> getPlaylist() { return new ArrayList<>(playback); }
+        public List<Track> getPlaylist() { return new ArrayList<>(snapshot); }
+
+        // Tối đa count bài sẽ phát sau bài hiện tại, theo thứ tự phát (quay vòng khi lặp lại tất cả)
+        public List<Track> getUpcoming(int count) {
+            List<Track> upcoming = new ArrayList<>();
+            if (repeatMode == RepeatMode.ONE) return upcoming; // Bài hiện tại đã ở trong cache
+
+            for (int i = 1; i <= count && i < playback.size(); i++) {
+                int position = index + i;
+                if (position >= playback.size()) {
+                    if (repeatMode != RepeatMode.ALL) break;
+                    position -= playback.size();
+                }
+                upcoming.add(playback.get(position));
+            }
+            return upcoming;
+        }
+
+        // Lặp lại do ExoPlayer xử lý nên quay vòng / lặp 1 bài cũng không có khoảng lặng
+        public void setRepeatMode(RepeatMode repeatMode) {
+            this.repeatMode = repeatMode;
+            runOnPlayer(() -> applyRepeatMode(repeatMode));
+        }
+
+        private void applyRepeatMode(RepeatMode repeatMode) {
+            schedulePrefetch();
+            if (player == null) return;
+            switch (repeatMode) {
+                case ONE:
+                    player.setRepeatMode(Player.REPEAT_MODE_ONE);
+                    break;
+                case ALL:
+                    player.setRepeatMode(Player.REPEAT_MODE_ALL);
+                    break;
+                case NONE:
+                default:
+                    player.setRepeatMode(Player.REPEAT_MODE_OFF);
+                    break;
+            }
+        }
+
+        // So sánh theo tham chiếu: hàng đợi có thể chứa cùng 1 bài nhiều lần
+        private int indexOf(List<Track> tracks, Track track) {
+            for (int i = 0; i < tracks.size(); i++) {
+                if (tracks.get(i) == track) return i;
+            }
+            return -1;
+        }
+
+        private List<MediaSource> toMediaSources(List<Track> tracks) {
+            List<MediaSource> sources = new ArrayList<>(tracks.size());
+            for (Track track : tracks) {
+                sources.add(toMediaSource(track));
+            }
+            return sources;
+        }
+
+        private MediaSource toMediaSource(Track track) {
+            File local = DownloadManager.getInstance().getLocalFile(track);
+            if (local != null && local.exists()) {
+                MediaItem item = new MediaItem.Builder()
+                        .setMediaId(track.getId())
+                        .setUri(Uri.fromFile(local))
+                        .setTag(track)
+                        .build();
+                return localSourceFactory.createMediaSource(item);
+            }
+            return streamSourceFactory.createMediaSource(toMediaItem(track));
+        }
+
+        private MediaItem toMediaItem(Track track) {
+            return new MediaItem.Builder()
+                    .setMediaId(track.getId())
+                    .setUri(track.getStreamUri())
+                    .setCustomCacheKey(AudioCacheManager.cacheKey(track))
+                    .setTag(track)
+                    .build();
+        }
     }
 
-    // Observer pattern (giữ nguyên)
-    public interface MusicServiceObserver {
+    // Observer nhận sự kiện theo lô qua PlaybackEventBus; mặc định chuyển về 2 callback cũ.
+    // Observer cần thêm POSITION / QUEUE_CHANGED thì override onPlaybackEvents.
+    public interface MusicServiceObserver extends PlaybackEventBus.Listener {
         void onPlaybackStateChanged(boolean isPlaying);
         void onTrackChanged(Track currentTrack);
+
+        @Override
+        default void onPlaybackEvents(List<PlaybackEventBus.PlaybackEvent> events) {
+            for (PlaybackEventBus.PlaybackEvent event : events) {
+                if (event.getType() == PlaybackEventBus.Type.TRACK_CHANGED) {
+                    onTrackChanged(event.getTrack());
+                } else if (event.getType() == PlaybackEventBus.Type.STATE_CHANGED) {
+                    onPlaybackStateChanged(event.isPlaying());
+                }
+            }
+        }
     }
 
-    private List<MusicServiceObserver> observers = new ArrayList<>();
+    private final PlaybackEventBus eventBus = new PlaybackEventBus();
 
-    public void addObserver(MusicServiceObserver observer) {
-        if (!observers.contains(observer)) {
-            observers.add(observer);
+    // Vị trí phát đẩy tới UI đang hiển thị, gọi trên main thread
+    public interface PositionObserver {
+        void onPositionChanged(long positionMs, long durationMs);
+    }
+
+    /**
+     * Nhận vị trí mỗi intervalMs trong lúc đang phát (tạm dừng thì nhận 1 lần rồi ngừng).
+     * intervalMs nên là ước của 1000 để tick rơi đúng mốc giây.
+     * Đăng ký trong onStart, hủy trong onStop để không đánh thức UI khi bị che.
+     */
+    public void addPositionObserver(PositionObserver observer, long intervalMs) {
+        if (positionTicker != null) {
+            positionTicker.add(observer, intervalMs);
         }
     }
 
+    public void removePositionObserver(PositionObserver observer) {
+        if (positionTicker != null) {
+            positionTicker.remove(observer);
+        }
+    }
+
+    // Observer được gọi trên main thread dù sự kiện đến từ luồng phát
+    public void addObserver(MusicServiceObserver observer) {
+        eventBus.subscribe(observer, mainHandler::post);
+    }
+
     public void removeObserver(MusicServiceObserver observer) {
-        observers.remove(observer);
+        eventBus.unsubscribe(observer);
+    }
+
+    public PlaybackEventBus getEventBus() {
+        return eventBus;
     }
 
     private void notifyPlaybackStateChanged(boolean isPlaying) {
         Log.d(TAG, "Notifying playback state: " + (isPlaying ? "PLAYING" : "PAUSED") +
-                " to " + observers.size() + " observers");
-
-        // TẠO DANH SÁCH COPY ĐỂ TRÁNH CONCURRENT MODIFICATION
-        List<MusicServiceObserver> observersCopy = new ArrayList<>(observers);
-
-        for (MusicServiceObserver observer : observersCopy) {
-            try {
-                observer.onPlaybackStateChanged(isPlaying);
-            } catch (Exception e) {
-                Log.e(TAG, "Error notifying observer: " + e.getMessage(), e);
-            }
-        }
+                " to " + eventBus.getSubscriberCount() + " observers");
+        eventBus.publishStateChanged(isPlaying);
     }
 
     private void notifyTrackChanged(Track currentTrack) {
         Log.d(TAG, "Notifying track changed: " +
                 (currentTrack != null ? currentTrack.getTitle() : "null") +
-                " to " + observers.size() + " observers");
-
-        for (MusicServiceObserver observer : observers) {
-            try {
-                observer.onTrackChanged(currentTrack);
-            } catch (Exception e) {
-                Log.e(TAG, "Error notifying observer: " + e.getMessage(), e);
-            }
-        }
+                " to " + eventBus.getSubscriberCount() + " observers");
+        eventBus.publishTrackChanged(currentTrack);
     }
 
+    // Chỉ dùng trên luồng phát; UI đọc trạng thái qua isPlaying() / getCurrentPosition() / getDuration()
     public ExoPlayer getPlayer() {
         return player;
     }
@@ -1060,10 +1336,7 @@ public class MusicService extends MediaBrowserServiceCompat {
     }
 
     public int getPlaybackState() {
-        if (player != null) {
-            return player.getPlaybackState();
-        }
-        return Player.STATE_IDLE;
+        return playbackStateSnapshot;
     }
 
 }
\ No newline at end of file
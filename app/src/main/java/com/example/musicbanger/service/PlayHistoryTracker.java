@@ -0,0 +1,90 @@
+package com.example.musicbanger.service;
+
+import android.os.SystemClock;
+import com.example.musicbanger.manager.UserPlaylistManager;
+import com.example.musicbanger.model.Track;
+
+/**
+ * Theo dõi lượt nghe hiện tại của MusicService: thời điểm bắt đầu và số ms thực sự nghe
+ * (không tính lúc tạm dừng). Khi bài hát kết thúc hoặc bị chuyển, lượt nghe được ghi vào play_history.
+ * Trạng thái phát được nhớ qua các lần chuyển bài: bài mới tự chuyển khi đang phát bắt đầu tính giờ ngay,
+ * không cần chờ EVENT_IS_PLAYING_CHANGED.
+ */
+class PlayHistoryTracker {
+    // Bỏ qua các lượt bấm qua bài gần như ngay lập tức
+    private static final long MIN_LISTENED_MS = 1000;
+
+    interface Clock {
+        long elapsedRealtime();
+    }
+
+    interface Recorder {
+        void recordPlay(Track track, long startedAt, long listenedMs, boolean completed);
+    }
+
+    private final Clock clock;
+    private final Recorder recorder;
+
+    private Track track;
+    private long startedAt;
+    private long listenedMs;
+    private long playingSince = -1; // elapsedRealtime khi bắt đầu phát, -1 = đang dừng
+    private boolean playing;
+
+    PlayHistoryTracker() {
+        this(SystemClock::elapsedRealtime,
+                (track, startedAt, listenedMs, completed) -> UserPlaylistManager.getInstance()
+                        .recordPlay(track, startedAt, listenedMs, completed));
+    }
+
+    PlayHistoryTracker(Clock clock, Recorder recorder) {
+        this.clock = clock;
+        this.recorder = recorder;
+    }
+
+    // Gọi khi player chuyển sang bài mới
+    void onTrackStarted(Track newTrack) {
+        finish(false);
+        track = newTrack;
+        startedAt = System.currentTimeMillis();
+        listenedMs = 0;
+        playingSince = playing && track != null ? clock.elapsedRealtime() : -1;
+    }
+
+    void onIsPlayingChanged(boolean isPlaying) {
+        playing = isPlaying;
+        if (track == null) return;
+
+        if (isPlaying && playingSince < 0) {
+            playingSince = clock.elapsedRealtime();
+        } else if (!isPlaying) {
+            closeSegment();
+        }
+    }
+
+    // Bài hát phát hết
+    void onTrackEnded() {
+        finish(true);
+    }
+
+    // Ghi lượt nghe đang mở (nếu có) và đặt lại trạng thái
+    void finish(boolean completed) {
+        if (track == null) return;
+
+        closeSegment();
+        if (completed || listenedMs >= MIN_LISTENED_MS) {
+            recorder.recordPlay(track, startedAt, listenedMs, completed);
+        }
+
+        track = null;
+        listenedMs = 0;
+        playingSince = -1;
+    }
+
+    private void closeSegment() {
+        if (playingSince >= 0) {
+            listenedMs += clock.elapsedRealtime() - playingSince;
+            playingSince = -1;
+        }
+    }
+}
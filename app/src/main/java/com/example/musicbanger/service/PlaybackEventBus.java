@@ -0,0 +1,168 @@
+package com.example.musicbanger.service;
+
+import android.util.Log;
+import com.example.musicbanger.model.Track;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phát sự kiện phát nhạc từ MusicService tới các observer.
+ * Danh sách đăng ký là copy-on-write nên publish không cần khóa và không phải copy mỗi lần.
+ * Mỗi observer nhận sự kiện theo lô trên executor của nó (thường là main thread);
+ * trong 1 lô chỉ giữ sự kiện mới nhất của mỗi loại và bỏ trạng thái phát không đổi.
+ */
+public class PlaybackEventBus {
+    private static final String TAG = "PlaybackEventBus";
+
+    public enum Type { TRACK_CHANGED, STATE_CHANGED, POSITION, QUEUE_CHANGED }
+
+    public interface Listener {
+        void onPlaybackEvents(List<PlaybackEvent> events);
+    }
+
+    public static final class PlaybackEvent {
+        private final Type type;
+        private final long sequence;
+        private final Track track;
+        private final boolean playing;
+        private final long positionMs;
+        private final int queueSize;
+
+        private PlaybackEvent(Type type, long sequence, Track track, boolean playing,
+                              long positionMs, int queueSize) {
+            this.type = type;
+            this.sequence = sequence;
+            this.track = track;
+            this.playing = playing;
+            this.positionMs = positionMs;
+            this.queueSize = queueSize;
+        }
+
+        public Type getType() { return type; }
+        public long getSequence() { return sequence; } // Tăng dần theo thứ tự publish
+        public Track getTrack() { return track; }       // TRACK_CHANGED
+        public boolean isPlaying() { return playing; }  // STATE_CHANGED
+        public long getPositionMs() { return positionMs; } // POSITION
+        public int getQueueSize() { return queueSize; }  // QUEUE_CHANGED
+    }
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public void subscribe(Listener listener, Executor executor) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) return;
+        }
+        subscriptions.add(new Subscription(listener, executor));
+    }
+
+    public void unsubscribe(Listener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                subscription.active = false;
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // ========== PUBLISH (gọi được từ mọi luồng) ==========
+
+    public void publishTrackChanged(Track track) {
+        publish(new PlaybackEvent(Type.TRACK_CHANGED, sequence.incrementAndGet(), track, false, 0, 0));
+    }
+
+    public void publishStateChanged(boolean playing) {
+        publish(new PlaybackEvent(Type.STATE_CHANGED, sequence.incrementAndGet(), null, playing, 0, 0));
+    }
+
+    public void publishPosition(long positionMs) {
+        publish(new PlaybackEvent(Type.POSITION, sequence.incrementAndGet(), null, false, positionMs, 0));
+    }
+
+    public void publishQueueChanged(int queueSize) {
+        publish(new PlaybackEvent(Type.QUEUE_CHANGED, sequence.incrementAndGet(), null, false, 0, queueSize));
+    }
+
+    private void publish(PlaybackEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.enqueue(event);
+        }
+    }
+
+    private static final class Subscription {
+        final Listener listener;
+        final Executor executor;
+        volatile boolean active = true;
+
+        private final List<PlaybackEvent> pending = new ArrayList<>(); // Khóa bằng chính pending
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private Boolean lastPlaying; // Chỉ dùng trong drain (chạy tuần tự trên executor)
+
+        Subscription(Listener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        void enqueue(PlaybackEvent event) {
+            synchronized (pending) {
+                pending.add(event);
+            }
+            // Chỉ 1 lượt drain chờ trên executor: các sự kiện đến sau gộp vào cùng lô
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            // Bỏ cờ trước khi lấy lô: sự kiện đến sau lúc này sẽ tự lên lịch drain mới,
+            // không bị kẹt trong pending (lô rỗng thì drain đó không làm gì)
+            scheduled.set(false);
+            List<PlaybackEvent> batch;
+            synchronized (pending) {
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+            if (!active) return;
+
+            List<PlaybackEvent> events = coalesce(batch);
+            if (events.isEmpty()) return;
+            try {
+                listener.onPlaybackEvents(events);
+            } catch (Exception e) {
+                Log.e(TAG, "Error notifying observer: " + e.getMessage(), e);
+            }
+        }
+
+        // Giữ sự kiện mới nhất của mỗi loại (theo thứ tự sequence), bỏ trạng thái phát trùng lần trước
+        private List<PlaybackEvent> coalesce(List<PlaybackEvent> batch) {
+            PlaybackEvent[] latest = new PlaybackEvent[Type.values().length];
+            for (PlaybackEvent event : batch) {
+                latest[event.type.ordinal()] = event;
+            }
+
+            PlaybackEvent state = latest[Type.STATE_CHANGED.ordinal()];
+            if (state != null) {
+                if (lastPlaying != null && lastPlaying == state.playing) {
+                    latest[Type.STATE_CHANGED.ordinal()] = null;
+                } else {
+                    lastPlaying = state.playing;
+                }
+            }
+
+            List<PlaybackEvent> events = new ArrayList<>(latest.length);
+            for (PlaybackEvent event : latest) {
+                if (event != null) events.add(event);
+            }
+            events.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+            return events;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.musicbanger.service;
+
+import android.os.Handler;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Đẩy vị trí phát tới các PositionObserver thay vì để UI tự hỏi player liên tục.
+ * Chỉ chạy khi đang phát và có observer (màn hình đang hiển thị); nhịp là interval nhỏ nhất
+ * mà các observer yêu cầu, canh theo mốc vị trí chia hết cho interval nên luôn rơi đúng
+ * mốc giây cho nhãn thời gian. Đọc player trên luồng phát, gửi kết quả về main thread.
+ */
+class PositionTicker {
+    // Tick sắp tới gần hơn ngưỡng này thì gộp luôn sang mốc sau
+    private static final long MIN_DELAY_MS = 20;
+
+    private final MusicService service;
+    private final Handler playerHandler;
+    private final Handler mainHandler;
+    private final CopyOnWriteArrayList<Entry> entries = new CopyOnWriteArrayList<>();
+    private final Runnable tick = this::tick;
+
+    PositionTicker(MusicService service, Handler playerHandler, Handler mainHandler) {
+        this.service = service;
+        this.playerHandler = playerHandler;
+        this.mainHandler = mainHandler;
+    }
+
+    void add(MusicService.PositionObserver observer, long intervalMs) {
+        remove(observer);
+        entries.add(new Entry(observer, Math.max(MIN_DELAY_MS, intervalMs)));
+        restart();
+    }
+
+    void remove(MusicService.PositionObserver observer) {
+        for (Entry entry : entries) {
+            if (entry.observer == observer) {
+                entries.remove(entry);
+            }
+        }
+    }
+
+    // Gọi khi trạng thái phát / vị trí nhảy: phát ngay 1 tick rồi canh lại nhịp
+    void restart() {
+        playerHandler.removeCallbacks(tick);
+        playerHandler.post(tick);
+    }
+
+    void release() {
+        playerHandler.removeCallbacks(tick);
+        entries.clear();
+    }
+
+    // Chạy trên luồng phát
+    private void tick() {
+        ExoPlayer player = service.getPlayer();
+        if (player == null || entries.isEmpty()) return;
+
+        long position = player.getCurrentPosition();
+        long duration = player.getDuration();
+        long reportedDuration = duration == C.TIME_UNSET ? 0 : duration;
+        mainHandler.post(() -> {
+            for (Entry entry : entries) {
+                entry.observer.onPositionChanged(position, reportedDuration);
+            }
+        });
+
+        // Tạm dừng / buffer / hết bài: dừng hẳn, onEvents sẽ gọi restart() khi phát lại
+        if (!player.isPlaying()) return;
+
+        long interval = minInterval();
+        long delay = interval - (position % interval);
+        if (delay < MIN_DELAY_MS) {
+            delay += interval;
+        }
+        playerHandler.postDelayed(tick, delay);
+    }
+
+    private long minInterval() {
+        long interval = Long.MAX_VALUE;
+        for (Entry entry : entries) {
+            interval = Math.min(interval, entry.intervalMs);
+        }
+        return interval;
+    }
+
+    private static final class Entry {
+        final MusicService.PositionObserver observer;
+        final long intervalMs;
+
+        Entry(MusicService.PositionObserver observer, long intervalMs) {
+            this.observer = observer;
+            this.intervalMs = intervalMs;
+        }
+    }
+}
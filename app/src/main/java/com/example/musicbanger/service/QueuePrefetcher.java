@@ -0,0 +1,123 @@
+package com.example.musicbanger.service;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+import com.example.musicbanger.manager.AudioCacheManager;
+import com.example.musicbanger.manager.DownloadManager;
+import com.example.musicbanger.model.Track;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.cache.CacheWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tải trước phần đầu của vài bài kế tiếp trong hàng đợi vào AudioCacheManager
+ * để bấm "bài tiếp" là phát ngay từ đĩa.
+ * Mỗi lần hàng đợi / bài hiện tại thay đổi, lượt tải trước cũ bị hủy và lên lịch lại.
+ */
+class QueuePrefetcher {
+    private static final String TAG = "QueuePrefetcher";
+
+    // Chờ bài hiện tại khởi động xong rồi mới tranh băng thông
+    private static final long START_DELAY_MS = 3000;
+
+    static final int MAX_TRACKS = 3;
+    private static final long PREFETCH_BYTES = 512 * 1024;
+
+    // Mạng tính phí (4G, hotspot): chỉ bài kế tiếp và ít dữ liệu hơn
+    private static final int METERED_MAX_TRACKS = 1;
+    private static final long METERED_PREFETCH_BYTES = 128 * 1024;
+
+    private final Context context;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> pending;
+    private volatile CacheWriter activeWriter;
+
+    QueuePrefetcher(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    // upcoming: các bài sắp phát theo đúng thứ tự phát (đã tính shuffle / lặp lại)
+    synchronized void prefetch(List<Track> upcoming) {
+        cancel();
+        if (upcoming == null || upcoming.isEmpty()) return;
+
+        List<Track> tracks = new ArrayList<>(upcoming);
+        pending = executor.schedule(() -> run(tracks), START_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void cancel() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        CacheWriter writer = activeWriter;
+        if (writer != null) {
+            writer.cancel();
+        }
+    }
+
+    void release() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void run(List<Track> tracks) {
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null || !isConnected(connectivity)) {
+            Log.d(TAG, "No network, skipping prefetch");
+            return;
+        }
+
+        boolean metered = connectivity.isActiveNetworkMetered();
+        int maxTracks = metered ? METERED_MAX_TRACKS : MAX_TRACKS;
+        long bytes = metered ? METERED_PREFETCH_BYTES : PREFETCH_BYTES;
+
+        AudioCacheManager cacheManager = AudioCacheManager.getInstance();
+        for (int i = 0; i < Math.min(maxTracks, tracks.size()); i++) {
+            if (Thread.currentThread().isInterrupted()) return;
+
+            Track track = tracks.get(i);
+            if (track.getStreamUri() == null
+                    || DownloadManager.getInstance().getLocalFile(track) != null
+                    || cacheManager.getCachedBytes(track, bytes) >= bytes) {
+                continue;
+            }
+
+            DataSpec dataSpec = new DataSpec.Builder()
+                    .setUri(track.getStreamUri())
+                    .setKey(AudioCacheManager.cacheKey(track))
+                    .setPosition(0)
+                    .setLength(bytes)
+                    .build();
+            CacheWriter writer = new CacheWriter(cacheManager.createCacheDataSource(), dataSpec, null, null);
+            activeWriter = writer;
+            try {
+                writer.cache();
+                Log.d(TAG, "Prefetched " + (bytes / 1024) + " KB of " + track.getTitle());
+            } catch (InterruptedIOException e) {
+                Log.d(TAG, "Prefetch cancelled");
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "Prefetch failed for " + track.getTitle() + ": " + e.getMessage());
+            } finally {
+                activeWriter = null;
+            }
+        }
+    }
+
+    private boolean isConnected(ConnectivityManager connectivity) {
+        NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        return capabilities != null
+                && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+}
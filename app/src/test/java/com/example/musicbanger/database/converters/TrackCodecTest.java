@@ -0,0 +1,110 @@
+package com.example.musicbanger.database.converters;
+
+import com.example.musicbanger.model.Track;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * TrackCodec: giữ nguyên mọi field qua encode / decode, đọc được dữ liệu phiên bản cũ,
+ * và nhỏ hơn đường Gson cũ.
+ */
+public class TrackCodecTest {
+    private static final int TRACK_COUNT = 500;
+
+    private final Gson gson = new Gson();
+    private final Type trackListType = new TypeToken<List<Track>>() {}.getType();
+
+    @Test
+    public void roundTripKeepsAllFields() {
+        List<Track> tracks = sampleTracks();
+        tracks.add(new Track("null-fields", null, null, null, null, null, 0));
+
+        List<Track> decoded = TrackCodec.decodeList(TrackCodec.encodeList(tracks));
+
+        assertEquals(tracks.size(), decoded.size());
+        for (int i = 0; i < tracks.size(); i++) {
+            Track expected = tracks.get(i);
+            Track actual = decoded.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getArtistName(), actual.getArtistName());
+            assertEquals(expected.getAlbumName(), actual.getAlbumName());
+            assertEquals(expected.getStreamUrl(), actual.getStreamUrl());
+            assertEquals(expected.getArtworkUrl(), actual.getArtworkUrl());
+            assertEquals(expected.getDownloadUrl(), actual.getDownloadUrl());
+            assertEquals(expected.getDuration(), actual.getDuration());
+        }
+    }
+
+    @Test
+    public void decodesVersion1Data() {
+        // version 1, 1 chuỗi "a", 1 track: id = "a", 5 field null, duration 42
+        byte[] v1 = {1, 1, 1, 'a', 1, 1, 0, 0, 0, 0, 0, 42};
+
+        Track track = TrackCodec.decode(v1);
+
+        assertEquals("a", track.getId());
+        assertNull(track.getDownloadUrl());
+        assertEquals(42, track.getDuration());
+    }
+
+    @Test
+    public void emptyAndSingleTrack() {
+        assertTrue(TrackCodec.decodeList(TrackCodec.encodeList(new ArrayList<>())).isEmpty());
+        assertTrue(TrackCodec.decodeList(null).isEmpty());
+
+        Track track = sampleTracks().get(0);
+        assertEquals(track.getTitle(), TrackCodec.decode(TrackCodec.encode(track)).getTitle());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownVersion() {
+        TrackCodec.decodeList(new byte[]{(byte) (TrackCodec.VERSION + 1), 0, 0});
+    }
+
+    @Test
+    public void encodesSmallerThanGson() {
+        List<Track> tracks = sampleTracks();
+
+        byte[] binary = TrackCodec.encodeList(tracks);
+        byte[] json = gson.toJson(tracks).getBytes(StandardCharsets.UTF_8);
+
+        // Chuỗi lặp lại (nghệ sĩ, album) chỉ lưu 1 lần nên phải nhỏ hơn hẳn JSON
+        assertTrue("Binary encoding should be under half the JSON size: " + binary.length + " vs " + json.length,
+                binary.length * 2 < json.length);
+
+        List<Track> fromJson = gson.fromJson(new String(json, StandardCharsets.UTF_8), trackListType);
+        List<Track> fromBinary = TrackCodec.decodeList(binary);
+        assertEquals(fromJson.size(), fromBinary.size());
+        for (int i = 0; i < fromJson.size(); i++) {
+            assertEquals(fromJson.get(i).getId(), fromBinary.get(i).getId());
+            assertEquals(fromJson.get(i).getDownloadUrl(), fromBinary.get(i).getDownloadUrl());
+        }
+    }
+
+    // Giống dữ liệu thật: nhiều bài cùng nghệ sĩ / album
+    private static List<Track> sampleTracks() {
+        List<Track> tracks = new ArrayList<>(TRACK_COUNT);
+        for (int i = 0; i < TRACK_COUNT; i++) {
+            int artist = i % 25;
+            int album = i % 60;
+            tracks.add(new Track(
+                    String.valueOf(1_500_000 + i),
+                    "Bài hát số " + i,
+                    "Nghệ sĩ " + artist,
+                    "Album " + album,
+                    "https://prod-1.storage.jamendo.com/?trackid=" + (1_500_000 + i) + "&format=mp31",
+                    "https://usercontent.jamendo.com/?type=album&id=" + album + "&width=300",
+                    120 + i % 240,
+                    i % 2 == 0 ? "https://prod-1.storage.jamendo.com/download/track/" + (1_500_000 + i) + "/mp32/" : null));
+        }
+        return tracks;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.musicbanger.service;
+
+import com.example.musicbanger.model.Track;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * PlayHistoryTracker: chỉ tính thời gian thực sự phát, theo đúng thứ tự sự kiện MusicService gửi tới
+ * (onMediaItemTransition trước, EVENT_IS_PLAYING_CHANGED trong onEvents sau).
+ */
+public class PlayHistoryTrackerTest {
+    private long now;
+    private final List<Long> listened = new ArrayList<>();
+    private final List<Boolean> completed = new ArrayList<>();
+    private PlayHistoryTracker tracker;
+
+    @Before
+    public void setUp() {
+        now = 0;
+        listened.clear();
+        completed.clear();
+        tracker = new PlayHistoryTracker(() -> now, (track, startedAt, listenedMs, done) -> {
+            listened.add(listenedMs);
+            completed.add(done);
+        });
+    }
+
+    @Test
+    public void pauseAndResumeExcludePausedTime() {
+        tracker.onTrackStarted(track("a"));
+        tracker.onIsPlayingChanged(true);
+        now = 5_000;
+        tracker.onIsPlayingChanged(false); // pause()
+        now = 65_000;
+        tracker.onIsPlayingChanged(true);  // resume()
+        now = 68_000;
+        tracker.finish(false);
+
+        assertEquals(1, listened.size());
+        assertEquals(8_000L, (long) listened.get(0));
+        assertFalse(completed.get(0));
+    }
+
+    @Test
+    public void longerPauseDoesNotChangeListenTime() {
+        tracker.onTrackStarted(track("a"));
+        tracker.onIsPlayingChanged(true);
+        now = 5_000;
+        tracker.onIsPlayingChanged(false);
+        now = 600_000;
+        tracker.onIsPlayingChanged(true);
+        now = 603_000;
+        tracker.onTrackEnded();
+
+        assertEquals(8_000L, (long) listened.get(0));
+        assertTrue(completed.get(0));
+    }
+
+    @Test
+    public void firstTrackStartsCountingWhenPlaybackStarts() {
+        // setPlaylistAndPlay: chuyển bài trước khi player kịp phát (đang buffer)
+        tracker.onTrackStarted(track("a"));
+        now = 2_000;
+        tracker.onIsPlayingChanged(true);
+        now = 12_000;
+        tracker.onTrackStarted(track("b")); // Người dùng bỏ qua bài
+
+        assertEquals(1, listened.size());
+        assertEquals(10_000L, (long) listened.get(0));
+    }
+
+    @Test
+    public void autoTransitionKeepsCountingWithoutPlayingEvent() {
+        tracker.onTrackStarted(track("a"));
+        tracker.onIsPlayingChanged(true);
+        now = 30_000;
+        tracker.onTrackEnded();
+        tracker.onTrackStarted(track("b")); // Player vẫn đang phát, không có EVENT_IS_PLAYING_CHANGED
+        now = 45_000;
+        tracker.finish(false);
+
+        assertEquals(2, listened.size());
+        assertEquals(30_000L, (long) listened.get(0));
+        assertEquals(15_000L, (long) listened.get(1));
+    }
+
+    @Test
+    public void quickSkipIsNotRecorded() {
+        tracker.onTrackStarted(track("a"));
+        tracker.onIsPlayingChanged(true);
+        now = 500;
+        tracker.onTrackStarted(track("b"));
+
+        assertTrue(listened.isEmpty());
+    }
+
+    private static Track track(String id) {
+        return new Track(id, "Title " + id, "Artist", "Album", "https://example.com/" + id, null, 180);
+    }
+}
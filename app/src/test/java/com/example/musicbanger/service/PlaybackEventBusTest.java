@@ -0,0 +1,64 @@
+package com.example.musicbanger.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * PlaybackEventBus: publish từ 1 luồng trong lúc executor của observer đang drain,
+ * sự kiện cuối cùng luôn phải tới observer (không bị kẹt lại trong pending).
+ */
+public class PlaybackEventBusTest {
+    // Nhiều vòng ngắn: mỗi vòng là 1 cơ hội để sự kiện cuối rơi đúng lúc executor đang drain
+    private static final int ROUNDS = 20_000;
+    private static final int EVENTS_PER_ROUND = 20;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentPublishDeliversLatestEvent() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            PlaybackEventBus bus = new PlaybackEventBus();
+            List<Integer> delivered = new ArrayList<>(); // Chỉ đọc / ghi trên executor
+            bus.subscribe(events -> {
+                for (PlaybackEventBus.PlaybackEvent event : events) {
+                    delivered.add(event.getQueueSize());
+                }
+            }, executor);
+
+            Thread publisher = new Thread(() -> {
+                for (int i = 0; i < EVENTS_PER_ROUND; i++) {
+                    bus.publishQueueChanged(i);
+                }
+            });
+            publisher.start();
+            publisher.join();
+
+            // Chờ executor chạy hết các lượt drain đã lên lịch
+            List<Integer> result = executor.submit(() -> new ArrayList<>(delivered)).get();
+
+            assertFalse("round " + round, result.isEmpty());
+            assertEquals("round " + round, EVENTS_PER_ROUND - 1,
+                    (int) result.get(result.size() - 1));
+            for (int i = 1; i < result.size(); i++) {
+                assertTrue("round " + round, result.get(i) > result.get(i - 1));
+            }
+        }
+    }
+}